@@ -0,0 +1,42 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.seed.MemberDataGenerator;
+import study.querydsl.seed.MemberSeedProperties;
+
+//벤치마크용 스프링 컨텍스트
+//TCP H2 서버 대신 프로세스 내부 H2(mem)를 쓰고, SQL 로그처럼 측정값을 흐리는 설정은 끈다.
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String... extraArgs) {
+        SpringApplication application = new SpringApplication(QuerydslApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        String[] args = {
+                "--spring.profiles.active=bench", //local 프로파일의 InitMember 가 돌지 않게
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn"
+        };
+        String[] merged = new String[args.length + extraArgs.length];
+        System.arraycopy(args, 0, merged, 0, args.length);
+        System.arraycopy(extraArgs, 0, merged, args.length, extraArgs.length);
+        return application.run(merged);
+    }
+
+    //teamCount 개의 팀에 members 명을 고르게 나눠서 넣는다. (MemberDataGenerator, seed 고정)
+    public static void seed(ConfigurableApplicationContext context, int members, int teamCount) {
+        MemberSeedProperties seed = context.getBean(MemberSeedProperties.class).copy();
+        seed.setMembers(members);
+        seed.setTeams(teamCount);
+        context.getBean(MemberDataGenerator.class).generate(seed);
+    }
+}
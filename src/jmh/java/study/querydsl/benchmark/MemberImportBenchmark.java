@@ -0,0 +1,135 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.MemberImportResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.importer.MemberImporter;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV 가져오기(MemberImporter) vs 엔티티를 한 건씩 save
+ */
+//한 번 호출에 ROWS 건을 넣으므로 @OperationsPerInvocation(ROWS) 로 나눠서 초당 넣은 row 수를 비교한다.
+//- savePerRow: row 마다 트랜잭션을 열고 MemberJpaRepository.save (API 로 한 건씩 넣는 경우)
+//- saveInOneTransaction: 예전 InitMember 처럼 트랜잭션 하나에서 row 마다 save (flush/clear 없이)
+//- importCsv: 같은 내용의 CSV 파일을 MemberImporter 로 (member.import.* 기본값)
+//팀은 미리 만들어 두므로 세 경우 모두 팀을 새로 만들지 않는다. 호출이 끝날 때마다 회원을 지운다.
+//./gradlew jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(MemberImportBenchmark.ROWS)
+public class MemberImportBenchmark {
+    static final int ROWS = 20_000;
+    static final int TEAMS = 20;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager em;
+    private TransactionTemplate transactionTemplate;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberImporter memberImporter;
+    private Long[] teamIds;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start();
+        em = context.getBean(EntityManager.class); //트랜잭션에 묶이는 공유 EntityManager
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberImporter = context.getBean(MemberImporter.class);
+
+        teamIds = transactionTemplate.execute(status -> {
+            Long[] ids = new Long[TEAMS];
+            for (int i = 0; i < TEAMS; i++) {
+                Team team = new Team(teamName(i));
+                em.persist(team);
+                ids[i] = team.getId();
+            }
+            return ids;
+        });
+
+        file = Files.createTempFile("members", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("username,age,teamName\n");
+            for (int i = 0; i < ROWS; i++) {
+                writer.write("member" + i + "," + age(i) + "," + teamName(i % TEAMS) + "\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteMembers() {
+        transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        context.close();
+    }
+
+    @Benchmark
+    public void savePerRow() {
+        for (int i = 0; i < ROWS; i++) {
+            int index = i;
+            transactionTemplate.executeWithoutResult(status -> memberJpaRepository.save(member(index)));
+        }
+    }
+
+    @Benchmark
+    public void saveInOneTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS; i++) {
+                memberJpaRepository.save(member(i));
+            }
+        });
+    }
+
+    @Benchmark
+    public MemberImportResult importCsv() throws IOException {
+        return memberImporter.importCsv(file);
+    }
+
+    //팀은 FK 만 있으면 되므로 프록시 참조로 넣는다. (changeTeam 은 team.members 를 초기화한다.)
+    private Member member(int index) {
+        Member member = new Member("member" + index, age(index));
+        member.setTeam(em.getReference(Team.class, teamIds[index % TEAMS]));
+        return member;
+    }
+
+    private static int age(int index) {
+        return index % 100;
+    }
+
+    private static String teamName(int index) {
+        return "team" + index;
+    }
+}
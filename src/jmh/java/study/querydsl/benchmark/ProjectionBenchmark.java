@@ -0,0 +1,149 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.Dto.MemberDto;
+import study.querydsl.Dto.MemberTeamDto;
+import study.querydsl.Dto.QMemberDto;
+import study.querydsl.Dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 프로젝션 방식별 비용 측정 (QuerydslBasicTest 의 findDtoBy* 예제들)
+ */
+//한 번 호출에 ROWS 건을 가져오므로 @OperationsPerInvocation(ROWS) 로 나눠서 row 당 처리량, row 당 할당량(gc.alloc.rate.norm)을 본다.
+//./gradlew jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(ProjectionBenchmark.ROWS)
+public class ProjectionBenchmark {
+    static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager em;
+    private JPAQueryFactory queryFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seed(context, ROWS, 10);
+        em = context.getBean(EntityManagerFactory.class).createEntityManager();
+        queryFactory = new JPAQueryFactory(em);
+    }
+
+    //엔티티 조회는 영속성 컨텍스트에 쌓이므로 매 호출 후 비워서 호출마다 같은 조건으로 측정한다.
+    @TearDown(Level.Invocation)
+    public void clear() {
+        em.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.close();
+        context.close();
+    }
+
+    //Projections.bean - 기본 생성자 + setter
+    @Benchmark
+    public List<MemberDto> bean() {
+        return queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //Projections.fields - 필드에 리플렉션으로 직접 주입
+    @Benchmark
+    public List<MemberDto> fields() {
+        return queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //Projections.constructor - 생성자 리플렉션
+    @Benchmark
+    public List<MemberDto> constructor() {
+        return queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //@QueryProjection - 생성된 QMemberDto 가 생성자를 직접 호출
+    @Benchmark
+    public List<MemberDto> queryProjection() {
+        return queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    //같은 컬럼을 DTO 대신 Tuple 로
+    @Benchmark
+    public List<Tuple> tuple() {
+        return queryFactory
+                .select(member.username, member.age)
+                .from(member)
+                .fetch();
+    }
+
+    //엔티티 조회 (team 은 LAZY 라서 조회하지 않는다.)
+    @Benchmark
+    public List<Member> memberEntity() {
+        return queryFactory
+                .selectFrom(member)
+                .fetch();
+    }
+
+    //Member + Team 엔티티를 페치 조인으로
+    @Benchmark
+    public List<Member> memberTeamEntityFetchJoin() {
+        return queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin()
+                .fetch();
+    }
+
+    //Member + Team 을 search() 와 같은 DTO 로
+    @Benchmark
+    public List<MemberTeamDto> memberTeamDto() {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch();
+    }
+}
@@ -0,0 +1,73 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.Dto.MemberAverageAgeDto;
+import study.querydsl.repository.MemberAverageAgeRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * select 절 서브쿼리 vs 집계 한 번 (MemberAverageAgeRepository)
+ */
+//회원 수가 늘어날수록 row 마다 실행되는 서브쿼리 비용이 커지는지 본다. (호출 한 번의 평균 시간)
+//./gradlew jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubqueryRewriteBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    int members;
+
+    private ConfigurableApplicationContext context;
+    private MemberAverageAgeRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seed(context, members, 20);
+        repository = context.getBean(MemberAverageAgeRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberAverageAgeDto> averageBySubquery() {
+        return repository.findWithAverageAgeBySubquery();
+    }
+
+    @Benchmark
+    public List<MemberAverageAgeDto> averageOnce() {
+        return repository.findWithAverageAge();
+    }
+
+    @Benchmark
+    public List<MemberAverageAgeDto> teamAverageBySubquery() {
+        return repository.findWithTeamAverageAgeBySubquery();
+    }
+
+    @Benchmark
+    public List<MemberAverageAgeDto> teamAverageOnce() {
+        return repository.findWithTeamAverageAge();
+    }
+}
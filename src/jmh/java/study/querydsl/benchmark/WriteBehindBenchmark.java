@@ -0,0 +1,93 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberWriteBehindRepository;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * save 호출마다 커밋 vs write-behind (MemberWriteBehindRepository)
+ */
+//여러 쓰레드가 동시에 회원을 저장할 때 초당 커밋된 insert 수를 비교한다. (ops/s - pipelined 는 쓰레드마다 IN_FLIGHT 건이 앞서 있다.)
+//- perCallSave           : 지금처럼 save 마다 트랜잭션 하나
+//- writeBehindWait       : write-behind 에 넣고 커밋될 때까지 기다린다. (동시 호출 쓰레드 수만큼만 묶인다.)
+//- writeBehindPipelined  : 쓰레드마다 IN_FLIGHT 건까지 커밋을 기다리지 않고 넣고, 그보다 오래된 것의 커밋을 확인한다.
+//./gradlew jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class WriteBehindBenchmark {
+    private static final int IN_FLIGHT = 64;
+
+    private ConfigurableApplicationContext context;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberWriteBehindRepository writeBehind;
+    private TransactionTemplate transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("--member.write-behind.enabled=true");
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        writeBehind = context.getBean(MemberWriteBehindRepository.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Pipeline {
+        final ArrayDeque<CompletableFuture<Member>> inFlight = new ArrayDeque<>();
+
+        //측정이 끝날 때 남은 것도 커밋된 뒤에 다음 iteration 으로 넘어간다.
+        @TearDown(Level.Iteration)
+        public void drain() {
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().join();
+            }
+        }
+    }
+
+    @Benchmark
+    public Member perCallSave() {
+        Member member = new Member("member", 10);
+        transaction.executeWithoutResult(status -> memberJpaRepository.save(member));
+        return member;
+    }
+
+    @Benchmark
+    public Member writeBehindWait() {
+        return writeBehind.save(new Member("member", 10)).join();
+    }
+
+    @Benchmark
+    public Member writeBehindPipelined(Pipeline pipeline) {
+        pipeline.inFlight.add(writeBehind.save(new Member("member", 10)));
+        return pipeline.inFlight.size() > IN_FLIGHT ? pipeline.inFlight.poll().join() : null;
+    }
+}
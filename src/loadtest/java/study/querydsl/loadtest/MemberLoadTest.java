@@ -0,0 +1,100 @@
+package study.querydsl.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.seed.MemberDataGenerator;
+import study.querydsl.seed.MemberSeedProperties;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /v1/members 부하 테스트
+ */
+//애플리케이션을 프로세스 내부 H2(mem)로 띄우고 members 명을 넣은 뒤, 검색 조건 쿼리스트링을 rate(요청/초)로 보낸다.
+//검색 조건 모양별 p50/p99/p99.9 지연 시간과 처리량을 출력한다.
+//./gradlew loadTest --args="--members=100000 --teams=100 --rate=500 --duration=60s"
+//옵션 (기본값)
+//  --members=10000 --teams=10 --rate=200 --warmup=10s --duration=30s --connections=64 --timeout=5s --path=/v1/members
+//  --queries="teamName=teamA;ageGoe=20&ageLoe=40" (';' 로 구분, 기본은 DEFAULT_QUERIES)
+public class MemberLoadTest {
+    private static final List<String> DEFAULT_QUERIES = Arrays.asList(
+            "username=member1",
+            "teamName=teamA",
+            "ageGoe=20&ageLoe=25",
+            "teamName=teamB&ageGoe=30&ageLoe=35",
+            "username=member10&teamName=teamA&ageGoe=10&ageLoe=60");
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parse(args);
+        int members = Integer.parseInt(options.getOrDefault("members", "10000"));
+        int teams = Integer.parseInt(options.getOrDefault("teams", "10"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "10s"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "30s"));
+        Duration timeout = Duration.parse("PT" + options.getOrDefault("timeout", "5s")); //요청마다 연결/읽기 timeout
+        String path = options.getOrDefault("path", "/v1/members");
+        List<String> queries = options.containsKey("queries")
+                ? Arrays.asList(options.get("queries").split(";"))
+                : DEFAULT_QUERIES;
+
+        ConfigurableApplicationContext context = start();
+        try {
+            seed(context, members, teams);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            System.setProperty("http.maxConnections", String.valueOf(connections)); //keep-alive 커넥션 수
+
+            OpenLoopLoadGenerator generator =
+                    new OpenLoopLoadGenerator("http://localhost:" + port + path, queries, rate, connections, timeout);
+            Map<String, OpenLoopLoadGenerator.ShapeResult> results = generator.run(warmup.toNanos(), duration.toNanos());
+
+            System.out.printf("%n%s members=%d teams=%d rate=%d/s duration=%s timeout=%s%n", path, members, teams, rate, duration, timeout);
+            System.out.println(OpenLoopLoadGenerator.header());
+            results.values().forEach(result -> System.out.println(result.format()));
+        } finally {
+            context.close();
+        }
+    }
+
+    //JMH 의 BenchmarkContext 와 같은 설정에 웹 서버만 임의 포트로 띄운다.
+    private static ConfigurableApplicationContext start() {
+        SpringApplication application = new SpringApplication(QuerydslApplication.class);
+        application.setWebApplicationType(WebApplicationType.SERVLET);
+        return application.run(
+                "--spring.profiles.active=loadtest", //local 프로파일의 InitMember 가 돌지 않게
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn");
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int members, int teams) {
+        MemberSeedProperties seed = context.getBean(MemberSeedProperties.class).copy();
+        seed.setMembers(members);
+        seed.setTeams(teams);
+        context.getBean(MemberDataGenerator.class).generate(seed);
+    }
+
+    //--name=value
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("--name=value 형식이어야 합니다: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
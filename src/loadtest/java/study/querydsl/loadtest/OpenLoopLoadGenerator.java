@@ -0,0 +1,202 @@
+package study.querydsl.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 열린 루프(open-loop) 부하 생성기
+ */
+//응답을 기다렸다가 다음 요청을 보내면(닫힌 루프) 서버가 느려질 때 요청도 덜 보내게 되어 대기 시간이 측정에서 빠진다. (coordinated omission)
+//요청마다 "보냈어야 하는 시각"을 rate 로 미리 정해두고, 지연 시간을 그 시각부터 응답을 다 받은 시각까지로 잰다.
+//-> 워커가 밀려서 늦게 보낸 시간도 지연 시간에 들어간다.
+//쿼리는 queries 를 차례대로 돌아가며 보내고, 결과는 검색 조건 모양(어떤 파라미터가 있는지)별로 모은다.
+//요청마다 연결/읽기 timeout 을 두고, 측정이 끝난 뒤 timeout 의 두 배(연결 + 읽기)까지 기다려도 끝나지 않은 요청과
+//아직 보내지 못한 요청은 그때까지의 지연 시간으로 unfinished 로 기록한다. -> 밀린 요청이 결과에서 빠지지 않는다.
+public class OpenLoopLoadGenerator {
+    private final String baseUrl;
+    private final List<String> queries;
+    private final int rate;
+    private final int connections;
+    private final int timeoutMillis;
+    private final Map<String, ShapeResult> results = new LinkedHashMap<>();
+    private final Set<Request> inFlight = ConcurrentHashMap.newKeySet();
+
+    public OpenLoopLoadGenerator(String baseUrl, List<String> queries, int rate, int connections, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.queries = queries;
+        this.rate = rate;
+        this.connections = connections;
+        this.timeoutMillis = Math.toIntExact(timeout.toMillis());
+        for (String query : queries) {
+            results.computeIfAbsent(shapeOf(query), ShapeResult::new);
+        }
+    }
+
+    //warmup 동안의 요청은 기록하지 않는다.
+    public Map<String, ShapeResult> run(long warmupNanos, long durationNanos) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(connections);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        try {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                String query = queries.get((int) (i % queries.size()));
+                ShapeResult result = intended >= measureFrom ? results.get(shapeOf(query)) : null;
+                workers.execute(new Request(query, intended, result));
+            }
+        } finally {
+            workers.shutdown();
+            if (!workers.awaitTermination(2L * timeoutMillis, TimeUnit.MILLISECONDS)) {
+                for (Runnable unsent : workers.shutdownNow()) {
+                    ((Request) unsent).abandon();
+                }
+                for (Request request : inFlight) {
+                    request.abandon();
+                }
+            }
+        }
+        for (ShapeResult result : results.values()) {
+            result.seconds = durationNanos / 1e9;
+        }
+        return results;
+    }
+
+    //보내야 했던 시각(intended)부터 지연 시간을 잰다. 끝나기 전에 abandon 되면 나중에 끝나도 기록하지 않는다.
+    private class Request implements Runnable {
+        private final String query;
+        private final long intended;
+        private final ShapeResult result;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        Request(String query, long intended, ShapeResult result) {
+            this.query = query;
+            this.intended = intended;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            inFlight.add(this);
+            try {
+                boolean ok = send();
+                if (result != null && recorded.compareAndSet(false, true)) {
+                    result.record(System.nanoTime() - intended, ok);
+                }
+            } finally {
+                inFlight.remove(this);
+            }
+        }
+
+        void abandon() {
+            if (result != null && recorded.compareAndSet(false, true)) {
+                result.recordUnfinished(System.nanoTime() - intended);
+            }
+        }
+
+        private boolean send() {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "?" + query).openConnection();
+                connection.setConnectTimeout(timeoutMillis);
+                connection.setReadTimeout(timeoutMillis);
+                boolean ok = connection.getResponseCode() / 100 == 2;
+                try (InputStream body = ok ? connection.getInputStream() : connection.getErrorStream()) {
+                    drain(body);
+                }
+                return ok;
+            } catch (IOException e) {
+                return false; //timeout 포함
+            }
+        }
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        if (body == null) {
+            return;
+        }
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) != -1) {
+            //keep-alive 로 커넥션을 재사용하려면 응답을 끝까지 읽어야 한다.
+        }
+    }
+
+    //"teamName=teamA&ageGoe=20" -> "teamName+ageGoe", 파라미터가 없으면 "(none)"
+    static String shapeOf(String query) {
+        List<String> names = new ArrayList<>();
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            if (!name.isEmpty() && eq >= 0 && eq < pair.length() - 1) {
+                names.add(name);
+            }
+        }
+        return names.isEmpty() ? "(none)" : String.join("+", names);
+    }
+
+    public static class ShapeResult {
+        private final String shape;
+        private final Histogram latencyMicros = new ConcurrentHistogram(3); //실패, unfinished 포함 (밀린 요청이 빠지지 않게)
+        private final AtomicLong successes = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong unfinished = new AtomicLong();
+        private double seconds;
+
+        ShapeResult(String shape) {
+            this.shape = shape;
+        }
+
+        void record(long latencyNanos, boolean ok) {
+            latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            (ok ? successes : errors).incrementAndGet();
+        }
+
+        //측정이 끝날 때까지 응답을 받지 못했거나 보내지도 못한 요청 - errors 와 따로 센다.
+        void recordUnfinished(long latencyNanos) {
+            latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            unfinished.incrementAndGet();
+        }
+
+        //처리량(ok/s)은 성공(2xx)으로 끝난 요청만 센다. 실패를 빨리 돌려주는 서버가 처리량이 높아 보이지 않게.
+        public String format() {
+            long count = latencyMicros.getTotalCount();
+            return String.format("%-40s %8d %10.1f %10.2f %10.2f %10.2f %10.2f %8d %10d",
+                    shape, count, successes.get() / seconds,
+                    millis(50), millis(99), millis(99.9), latencyMicros.getMaxValue() / 1000.0, errors.get(), unfinished.get());
+        }
+
+        private double millis(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+
+    public static String header() {
+        return String.format("%-40s %8s %10s %10s %10s %10s %10s %8s %10s",
+                "shape", "requests", "ok/s", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)", "errors", "unfinished");
+    }
+}
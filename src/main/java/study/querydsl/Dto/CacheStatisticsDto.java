@@ -0,0 +1,34 @@
+package study.querydsl.Dto;
+
+import lombok.Data;
+import org.hibernate.stat.CacheRegionStatistics;
+
+//캐시 영역별 적중 통계
+@Data
+public class CacheStatisticsDto {
+    private String region;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long size;
+    private double hitRatio;
+
+    public CacheStatisticsDto(String region, long hitCount, long missCount, long putCount, long size) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.size = size;
+        long total = hitCount + missCount;
+        this.hitRatio = total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    //아직 한 번도 사용되지 않은 영역은 통계가 null 이다.
+    public static CacheStatisticsDto of(String region, CacheRegionStatistics statistics) {
+        if (statistics == null) {
+            return new CacheStatisticsDto(region, 0, 0, 0, 0);
+        }
+        return new CacheStatisticsDto(region, statistics.getHitCount(), statistics.getMissCount(),
+                statistics.getPutCount(), statistics.getElementCountInMemory());
+    }
+}
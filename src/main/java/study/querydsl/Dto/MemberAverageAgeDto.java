@@ -0,0 +1,21 @@
+package study.querydsl.Dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+//회원 + 평균 나이 (전체 평균 또는 소속 팀 평균) - MemberAverageAgeRepository
+@Data
+public class MemberAverageAgeDto {
+    private Long memberId;
+    private String username;
+    private int age;
+    private Double averageAge; //팀 평균에서 팀이 없는 회원은 null
+
+    @QueryProjection
+    public MemberAverageAgeDto(Long memberId, String username, int age, Double averageAge) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.averageAge = averageAge;
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.Dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//청크 단위 벌크 연산의 진행 상황 / 결과 (MemberBulkRepository)
+@Getter
+@ToString
+public class MemberBulkResult {
+    private final String operation;
+    private final int completedChunks;
+    private final int totalChunks;
+    private final long affectedRows;
+    private final long elapsedMillis;
+
+    public MemberBulkResult(String operation, int completedChunks, int totalChunks, long affectedRows, long elapsedMillis) {
+        this.operation = operation;
+        this.completedChunks = completedChunks;
+        this.totalChunks = totalChunks;
+        this.affectedRows = affectedRows;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isDone() {
+        return completedChunks == totalChunks;
+    }
+}
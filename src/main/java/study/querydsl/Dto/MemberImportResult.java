@@ -0,0 +1,55 @@
+package study.querydsl.Dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+//CSV 회원 가져오기 결과 (MemberImporter)
+//chunkReports 에는 건너뛴 row 가 있거나 실패(롤백)한 청크만 담긴다.
+@Getter
+@ToString
+public class MemberImportResult {
+    private final int chunks;
+    private final int failedChunks;
+    private final long importedRows;
+    private final long rejectedRows;
+    private final long createdTeams;
+    private final long elapsedMillis;
+    private final List<ChunkReport> chunkReports;
+
+    public MemberImportResult(int chunks, int failedChunks, long importedRows, long rejectedRows, long createdTeams,
+                              long elapsedMillis, List<ChunkReport> chunkReports) {
+        this.chunks = chunks;
+        this.failedChunks = failedChunks;
+        this.importedRows = importedRows;
+        this.rejectedRows = rejectedRows;
+        this.createdTeams = createdTeams;
+        this.elapsedMillis = elapsedMillis;
+        this.chunkReports = chunkReports;
+    }
+
+    @Getter
+    @ToString
+    public static class ChunkReport {
+        private final int chunk;
+        private final long firstLine;      //청크 첫 row 의 줄 번호 (헤더가 1)
+        private final long importedRows;   //실패하면 0 (청크 전체가 롤백된다.)
+        private final int rejectedRows;    //값이 잘못되어 건너뛴 row 수
+        private final List<String> rejected; //"줄 번호: 이유" (앞쪽 일부)
+        private final String error;        //청크 실패 이유 (성공하면 null)
+
+        public ChunkReport(int chunk, long firstLine, long importedRows, int rejectedRows, List<String> rejected, String error) {
+            this.chunk = chunk;
+            this.firstLine = firstLine;
+            this.importedRows = importedRows;
+            this.rejectedRows = rejectedRows;
+            this.rejected = rejected;
+            this.error = error;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.Dto;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//키셋(seek) 페이징에서 마지막으로 조회한 행의 위치 (정렬 키 age, 동률일 때 member.id)
+//클라이언트에는 내부 구조를 숨긴 불투명(opaque) 토큰 문자열로만 전달한다.
+@Value
+public class MemberKeysetCursor {
+    int age;
+    Long memberId;
+
+    public static MemberKeysetCursor from(MemberTeamDto last) {
+        return new MemberKeysetCursor(last.getAge(), last.getMemberId());
+    }
+
+    public String encode() {
+        String raw = age + ":" + memberId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //토큰이 없으면 첫 페이지(null)
+    public static MemberKeysetCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new MemberKeysetCursor(
+                    Integer.parseInt(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) { //NumberFormatException 포함
+            throw new IllegalArgumentException("잘못된 continuation token 입니다: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.Dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+//키셋 페이징 결과
+//offset 대신 nextToken 으로 다음 페이지를 요청한다. (다음 페이지가 없으면 null)
+@Getter
+public class MemberKeysetPage {
+    private final List<MemberTeamDto> content;
+    private final String nextToken;
+    private final Long total; //searchKeysetComplex 에서만 채워진다.
+
+    public MemberKeysetPage(List<MemberTeamDto> content, String nextToken, Long total) {
+        this.content = content;
+        this.nextToken = nextToken;
+        this.total = total;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    //size + 1 건을 조회한 결과로 다음 페이지 존재 여부를 판단한다. (count 쿼리 없이)
+    public static MemberKeysetPage of(List<MemberTeamDto> fetched, int size, Long total) {
+        if (fetched.size() <= size) {
+            return new MemberKeysetPage(fetched, null, total);
+        }
+        List<MemberTeamDto> content = fetched.subList(0, size);
+        String nextToken = MemberKeysetCursor.from(content.get(size - 1)).encode();
+        return new MemberKeysetPage(content, nextToken, total);
+    }
+}
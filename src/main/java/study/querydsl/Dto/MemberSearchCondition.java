@@ -10,4 +10,7 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
-}
\ No newline at end of file
+    //회원명 앞부분, 회원명에 포함된 문자열 (UsernameSearchIndex)
+    private String usernamePrefix;
+    private String usernameContains;
+}
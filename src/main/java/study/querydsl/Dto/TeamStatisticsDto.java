@@ -0,0 +1,25 @@
+package study.querydsl.Dto;
+
+import lombok.Data;
+
+//팀별 나이 통계 (QuerydslBasicTest.group(), aggregation() 과 같은 값)
+@Data
+public class TeamStatisticsDto {
+    private Long teamId;
+    private String teamName;
+    private long count;
+    private long sum;
+    private int min;
+    private int max;
+    private double avg;
+
+    public TeamStatisticsDto(Long teamId, String teamName, long count, long sum, int min, int max) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.avg = count == 0 ? 0 : (double) sum / count;
+    }
+}
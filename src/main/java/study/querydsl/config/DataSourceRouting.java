@@ -0,0 +1,38 @@
+package study.querydsl.config;
+
+import java.util.function.Supplier;
+
+//read-your-writes 탈출구
+//방금 쓴 데이터를 바로 읽어야 하는 경우 복제 지연 때문에 replica 에는 아직 없을 수 있다.
+//forcePrimary() 안에서 시작한 트랜잭션은 읽기 전용이어도 primary 로 보낸다.
+public final class DataSourceRouting {
+    private static final ThreadLocal<Integer> PRIMARY_FORCED = ThreadLocal.withInitial(() -> 0);
+
+    private DataSourceRouting() {
+    }
+
+    public static <T> T forcePrimary(Supplier<T> action) {
+        PRIMARY_FORCED.set(PRIMARY_FORCED.get() + 1);
+        try {
+            return action.get();
+        } finally {
+            int depth = PRIMARY_FORCED.get() - 1;
+            if (depth == 0) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(depth);
+            }
+        }
+    }
+
+    public static void forcePrimary(Runnable action) {
+        forcePrimary(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() > 0;
+    }
+}
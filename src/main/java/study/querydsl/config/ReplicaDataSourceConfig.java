@@ -0,0 +1,69 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//datasource.routing.enabled=true 일 때만 primary/replica 라우팅 DataSource 를 등록한다.
+//DataSource 빈을 직접 등록하므로 스프링 부트의 DataSource 자동 설정은 빠지고, JPA 는 이 DataSource 를 사용한다.
+//로컬에서는 application-replica.yml 처럼 프로세스 내부 H2 여러 개로 띄워볼 수 있다.
+//OSIV(spring.jpa.open-in-view)와는 같이 쓸 수 없다. 하이버네이트는 커넥션을 처음 쓸 때 얻어서 EntityManager 가
+//닫힐 때까지 잡고 있으므로(DELAYED_ACQUISITION_AND_HOLD), 요청 하나가 EntityManager 를 공유하면
+//읽기 전용 트랜잭션 다음의 쓰기 트랜잭션도 먼저 얻은 replica 커넥션으로 나간다.
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class ReplicaDataSourceConfig {
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, ReplicaDataSourceProperties routingProperties,
+                                 @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException("datasource.routing.enabled 를 쓰려면 spring.jpa.open-in-view 를 false 로 설정해야 합니다.");
+        }
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < routingProperties.getReplicas().size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = routingProperties.getReplicas().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.getUsername());
+            dataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.getPassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            dataSource.setConnectionTimeout(1000); //죽은 replica 때문에 오래 기다리지 않고 다음 replica 로 넘어간다.
+            dataSource.setInitializationFailTimeout(-1); //replica 가 내려가 있어도 애플리케이션은 뜬다.
+            replicas.add(dataSource);
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+                routingProperties.getHealthCheckInterval().toMillis());
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+}
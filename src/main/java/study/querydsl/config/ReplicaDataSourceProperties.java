@@ -0,0 +1,26 @@
+package study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//datasource.routing.* - replica 접속 정보 (primary 는 spring.datasource 를 그대로 쓴다.)
+@Getter @Setter
+@ConfigurationProperties(prefix = "datasource.routing")
+public class ReplicaDataSourceProperties {
+    private boolean enabled;
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
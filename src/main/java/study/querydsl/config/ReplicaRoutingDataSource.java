@@ -0,0 +1,163 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 replica 로, 나머지(쓰기, 벌크 연산, 트랜잭션 밖)는 primary 로 보내는 DataSource
+ */
+//트랜잭션이 읽기 전용인지는 커넥션을 얻는 시점에 판단하므로 반드시 LazyConnectionDataSourceProxy 로 감싸서 써야 한다.
+//(트랜잭션 매니저는 readOnly 동기화 정보를 세팅하기 전에 커넥션을 먼저 얻는다.)
+//replica 는 정상(healthy)인 것들 중에서 라운드 로빈으로 고르고, 커넥션을 못 얻으면 비정상으로 표시하고 다음 replica -> primary 순으로 넘어간다.
+//비정상 replica 는 주기적인 헬스 체크(Connection.isValid)가 성공하면 다시 사용한다.
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicaDataSources,
+                                    long healthCheckIntervalMillis) {
+        this.primary = primary;
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            replicas.add(new Replica("replica-" + i, replicaDataSources.get(i)));
+        }
+        if (healthCheckIntervalMillis > 0 && !replicas.isEmpty()) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkHealth,
+                    healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            healthChecker = null;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    //고른 replica(또는 primary)에 계정만 그대로 넘긴다. (replica 도 같은 계정을 쓴다고 가정)
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionOpener opener) throws SQLException {
+        if (!routeToReplica()) {
+            return opener.open(primary);
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return opener.open(replica.dataSource);
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+        return opener.open(primary); //정상 replica 가 없으면 primary 에서 읽는다.
+    }
+
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(1)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown(null);
+                }
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+    }
+
+    public int healthyReplicaCount() {
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean routeToReplica() {
+        return !replicas.isEmpty()
+                && !DataSourceRouting.isPrimaryForced()
+                && TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        closeQuietly(primary);
+        for (Replica replica : replicas) {
+            closeQuietly(replica.dataSource);
+        }
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("failed to close {}", dataSource, e);
+            }
+        }
+    }
+
+    private interface ConnectionOpener {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void markDown(SQLException cause) {
+            if (healthy) {
+                log.warn("{} is down, routing reads to other replicas or primary", name, cause);
+            }
+            healthy = false;
+        }
+
+        void markUp() {
+            if (!healthy) {
+                log.info("{} is back up", name);
+            }
+            healthy = true;
+        }
+    }
+}
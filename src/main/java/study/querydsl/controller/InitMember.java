@@ -3,37 +3,19 @@ package study.querydsl.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import study.querydsl.entity.Member;
-import study.querydsl.entity.Team;
+import study.querydsl.seed.MemberDataGenerator;
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
 
 @Profile("local") //local main application을 실행할 때 이 어노테이션에 의해 이 클래스가 자동 실행된다.
 @Component
 @RequiredArgsConstructor
 public class InitMember {
-    private final InitMemberService initMemberService;
+    //회원 한 명씩 persist 하던 InitMemberService 대신 청크/배치 단위로 넣는 MemberDataGenerator 를 사용한다.
+    //생성할 데이터의 양과 분포는 member.seed.* 설정으로 조절한다. (기본값은 팀 2개, 회원 100명)
+    private final MemberDataGenerator memberDataGenerator;
 
     @PostConstruct  //초기화 작업을 할 메소드에 적용되는 어노테이션(WAS가 띄어질 때 실행된다.
     public void init() {
-        initMemberService.init();
-    }
-    @Component
-    static class InitMemberService {
-        @PersistenceContext
-        private EntityManager em;
-        @Transactional
-        public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
-            }
-        }
+        memberDataGenerator.generate();
     }
 }
@@ -1,21 +1,100 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import study.querydsl.Dto.MemberSearchCondition;
 import study.querydsl.Dto.MemberTeamDto;
+import study.querydsl.export.MemberExportCheckpointListener;
+import study.querydsl.export.MemberExportFormat;
+import study.querydsl.export.MemberExporter;
+import study.querydsl.repository.MemberAsyncRepository;
 import study.querydsl.repository.MemberJpaRepository;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
     private final MemberJpaRepository memberJpaRepository;
+    private final MemberAsyncRepository memberAsyncRepository;
+    private final MemberExporter memberExporter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${member.stream.fetch-size:500}")
+    private int streamFetchSize;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) //@RequestParam을 선언 안해줘도 VO를 넣어주면 일치하는 VO의 멤버변수에 값이 들어간다.
     {
         return memberJpaRepository.search(condition);
     }
-}
\ No newline at end of file
+
+    //v1과 같은 조건으로 조회하지만 결과를 한 줄에 하나씩(NDJSON) 바로 응답에 써서 힙에 전체 결과를 올리지 않는다.
+    @GetMapping(value = "/v1/members/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void searchMemberStream(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class);
+        OutputStream out = new BufferedOutputStream(response.getOutputStream());
+        memberJpaRepository.searchStream(condition, streamFetchSize, dto -> {
+            try {
+                out.write(writer.writeValueAsBytes(dto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    //전체 회원/팀 내보내기 (분석용) - 커서로 읽어서 응답 채널에 바로 인코딩한다. (MemberExporter)
+    //member.id 순이므로 받다가 끊기면 받은 마지막 member_id 를 afterId 로 넘겨서 이어 받는다. (헤더는 afterId 가 0 일 때만)
+    @GetMapping("/v1/members/export")
+    public void exportMembers(@RequestParam(defaultValue = "CSV") MemberExportFormat format,
+                              @RequestParam(defaultValue = "false") boolean gzip,
+                              @RequestParam(defaultValue = "0") long afterId,
+                              HttpServletResponse response) throws IOException {
+        String filename = "members" + format.getExtension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : format.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+        memberExporter.export(Channels.newChannel(response.getOutputStream()), format, gzip, afterId, afterId == 0,
+                MemberExportCheckpointListener.NONE);
+    }
+
+    //v2 - 조회를 DB 쓰레드풀(MemberAsyncRepository)에 넘기고 서블릿 쓰레드는 바로 반환한다.
+    //DB 쓰레드풀이 포화되면 기다리지 않고 503 으로 응답한다.
+    @GetMapping("/v2/members")
+    public CompletableFuture<List<MemberTeamDto>> searchMemberV2(MemberSearchCondition condition) {
+        return memberAsyncRepository.search(condition);
+    }
+
+    @GetMapping("/v2/members/page")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberPageV2(MemberSearchCondition condition, Pageable pageable) {
+        return memberAsyncRepository.searchPageConcurrent(condition, pageable);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String rejected(RejectedExecutionException e) {
+        return e.getMessage();
+    }
+}
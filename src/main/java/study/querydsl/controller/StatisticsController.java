@@ -0,0 +1,37 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.Dto.CacheStatisticsDto;
+import study.querydsl.Dto.TeamStatisticsDto;
+import study.querydsl.index.TeamStatisticsStore;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.TeamJpaRepository;
+
+import java.util.Arrays;
+import java.util.List;
+
+//캐시 크기를 정할 수 있도록 영역별 적중률을 보여준다.
+@RestController
+@RequiredArgsConstructor
+public class StatisticsController {
+    private final TeamJpaRepository teamJpaRepository;
+    private final MemberCountCache memberCountCache;
+    private final TeamStatisticsStore teamStatisticsStore;
+
+    @GetMapping("/v1/stats/cache")
+    public List<CacheStatisticsDto> cacheStatistics() {
+        return Arrays.asList(
+                teamJpaRepository.teamCacheStatistics(),
+                teamJpaRepository.teamByNameCacheStatistics(),
+                new CacheStatisticsDto("member-count", memberCountCache.getHitCount(),
+                        memberCountCache.getMissCount(), memberCountCache.getPutCount(), memberCountCache.size()));
+    }
+
+    //팀별 나이 통계 (member.team-stats.enabled 이면 member 테이블을 읽지 않는다.)
+    @GetMapping("/v1/stats/teams")
+    public List<TeamStatisticsDto> teamStatistics() {
+        return teamStatisticsStore.statistics();
+    }
+}
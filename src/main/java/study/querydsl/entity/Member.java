@@ -2,14 +2,28 @@ package study.querydsl.entity;
 import lombok.*;
 import javax.persistence.*;
 @Entity
+@EntityListeners(MemberEntityListener.class) //변경 이벤트 발행 (count 캐시 무효화 등)
+//검색 조건(username, age, team_id)별 인덱스 - 조건이 하나라도 있으면 전체 스캔하지 않는다. (MemberQueryPlanTest)
+//(age, member_id) 는 age 범위 검색과 키셋 페이징의 (age, id) 정렬을 함께 처리한다.
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age_id", columnList = "age, member_id"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age")
+})
+//team 을 함께 조회하는 엔티티 그래프 (MemberFetchPlan.ENTITY_GRAPH)
+@NamedEntityGraph(name = Member.WITH_TEAM, attributeNodes = @NamedAttributeNode("team"))
 //Setter는 실무에서 왠만하면 안쓰는게 좋고 안쓴다.
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 //toString을 자동으로 만들어주는 lombok
 @ToString(of = {"id", "username", "age"})
 public class Member {
+    public static final String WITH_TEAM = "Member.team";
+
     @Id
-    @GeneratedValue
+    //시퀀스를 50개씩 미리 할당(pooled)받아서 insert 마다 시퀀스를 조회하지 않는다. (대량 insert 시 JDBC 배치 가능)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
     private String username;
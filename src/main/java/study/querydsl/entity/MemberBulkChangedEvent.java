@@ -0,0 +1,18 @@
+package study.querydsl.entity;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//벌크 연산(update/delete 쿼리)은 영속성 컨텍스트와 엔티티 리스너를 거치지 않기 때문에
+//어떤 row 가 바뀌었는지 알 수 없다. 구독하는 쪽은 member 관련 캐시를 전부 무효화해야 한다.
+@Getter
+@ToString
+public class MemberBulkChangedEvent {
+    private final String operation;
+    private final long affectedRows;
+
+    public MemberBulkChangedEvent(String operation, long affectedRows) {
+        this.operation = operation;
+        this.affectedRows = affectedRows;
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.entity;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
+
+//Member 가 저장/수정/삭제될 때 MemberEntityListener 가 발행하는 이벤트
+//엔티티 자체가 아니라 발행 시점의 값을 복사해 두기 때문에 트랜잭션이 끝난 뒤(AFTER_COMMIT)에 꺼내 써도 안전하다.
+@Getter
+@ToString
+public class MemberChangedEvent {
+    public enum Type {PERSIST, UPDATE, REMOVE}
+
+    private final Type type;
+    private final Long memberId;
+    private final String username;
+    private final int age;
+    private final Long teamId;
+    private final String teamName; //team 이 아직 초기화되지 않은 프록시라면 null (이벤트 때문에 쿼리를 날리지 않는다.)
+
+    private MemberChangedEvent(Type type, Member member) {
+        this.type = type;
+        this.memberId = member.getId();
+        this.username = member.getUsername();
+        this.age = member.getAge();
+        Team team = member.getTeam();
+        this.teamId = teamIdOf(team);
+        this.teamName = team != null && Hibernate.isInitialized(team) ? team.getName() : null;
+    }
+
+    public static MemberChangedEvent of(Type type, Member member) {
+        return new MemberChangedEvent(type, member);
+    }
+
+    //프록시의 getId()는 필드 접근 방식에서 초기화를 일으킬 수 있어서 LazyInitializer 에서 바로 꺼낸다.
+    private static Long teamIdOf(Team team) {
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team.getId();
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.entity;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+//Member 의 변경을 스프링 이벤트로 발행하는 JPA 엔티티 리스너
+//스프링 부트는 하이버네이트에 SpringBeanContainer 를 등록해주기 때문에 리스너도 생성자 주입을 받을 수 있다.
+//changeTeam() 같은 변경도 더티체킹으로 flush 될 때 @PostUpdate 로 들어온다.
+public class MemberEntityListener {
+    private final ApplicationEventPublisher publisher;
+
+    public MemberEntityListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    public void postPersist(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.PERSIST, member));
+    }
+
+    @PostUpdate
+    public void postUpdate(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.UPDATE, member));
+    }
+
+    @PostRemove
+    public void postRemove(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.REMOVE, member));
+    }
+}
@@ -1,9 +1,17 @@
 package study.querydsl.entity;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 @Entity
+//팀 이름으로 팀 id 를 찾는다. (TeamJpaRepository.findIdsByName)
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
+//팀은 수가 적고 거의 바뀌지 않으므로 2차 캐시에 둔다. (member.getTeam() 지연 로딩도 캐시에서 꺼낸다.)
+//READ_WRITE - Team 을 수정하면 커밋 시점에 캐시도 갱신된다.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
 @Getter @Setter
 //protected 기본 생성자를 만들어준다.
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -11,7 +19,8 @@ import java.util.List;
 public class Team {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
     @Column(name = "team_id")
     private Long id;
     private String name;
@@ -0,0 +1,12 @@
+package study.querydsl.export;
+
+import java.io.IOException;
+
+//checkpoint 마다 호출된다. lastMemberId 까지의 row 는 모두 채널에 쓰였다. (afterId 로 넘기면 그 다음부터 이어서 내보낸다.)
+@FunctionalInterface
+public interface MemberExportCheckpointListener {
+    MemberExportCheckpointListener NONE = (lastMemberId, rows) -> {
+    };
+
+    void onCheckpoint(long lastMemberId, long rows) throws IOException;
+}
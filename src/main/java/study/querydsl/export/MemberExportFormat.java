@@ -0,0 +1,26 @@
+package study.querydsl.export;
+
+//회원/팀 내보내기 형식 (MemberExportWriter)
+//CSV    : member_id,username,age,team_id,team_name (UTF-8, RFC 4180 따옴표 규칙, null 은 빈 칸)
+//BINARY : "MEM1" 헤더 뒤에 row 마다 [int 길이][long member_id][int age][string username][byte 팀 유무][long team_id][string team_name]
+//         string 은 [int 바이트 수(null 이면 -1)][UTF-8 바이트], 숫자는 빅 엔디안 (DataInputStream 으로 읽을 수 있다.)
+public enum MemberExportFormat {
+    CSV("text/csv", ".csv"),
+    BINARY("application/octet-stream", ".bin");
+
+    private final String contentType;
+    private final String extension;
+
+    MemberExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.export;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+//회원/팀 내보내기 설정 (member.export.*)
+//file, format, gzip, resume 은 export 프로파일의 MemberExportRunner 만 사용한다.
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "member.export")
+public class MemberExportProperties {
+    private int fetchSize = 1000;             //JDBC 커서가 한 번에 가져올 row 수
+    private int bufferSize = 64 * 1024;       //인코딩 버퍼 크기 - 버퍼가 찰 때마다 채널에 한 번 쓴다.
+    private int checkpointInterval = 100_000; //이만큼 row 를 쓸 때마다 checkpoint (gzip member 를 끝내고 이어 쓸 위치를 남긴다.)
+    private String file = "members.csv";
+    private MemberExportFormat format = MemberExportFormat.CSV;
+    private boolean gzip = false;
+    private boolean resume = true;            //file.checkpoint 가 있으면 그 뒤부터 이어 쓴다.
+}
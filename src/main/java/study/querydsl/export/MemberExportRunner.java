@@ -0,0 +1,84 @@
+package study.querydsl.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * 회원/팀 내보내기 CLI (export 프로파일)
+ */
+//java -jar querydsl.jar --spring.profiles.active=export --spring.main.web-application-type=none \
+//     --member.export.file=members.csv.gz --member.export.gzip=true
+//checkpoint 마다 파일 내용을 디스크에 내리고(force) 이어 쓸 위치(lastMemberId, 파일 크기)를 file.checkpoint 에 남긴다.
+//중간에 멈췄다면 다시 실행했을 때 파일을 checkpoint 크기로 자르고 lastMemberId 다음 회원부터 이어 쓴다.
+//끝까지 내보낸 뒤 다시 실행하면 그 뒤로 추가된 회원만 덧붙인다. 처음부터 다시 쓰려면 member.export.resume=false
+@Slf4j
+@Profile("export")
+@Component
+public class MemberExportRunner implements ApplicationRunner {
+    private final MemberExporter exporter;
+    private final MemberExportProperties properties;
+
+    public MemberExportRunner(MemberExporter exporter, MemberExportProperties properties) {
+        this.exporter = exporter;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Path file = Paths.get(properties.getFile());
+        Path checkpointFile = Paths.get(properties.getFile() + ".checkpoint");
+        Properties checkpoint = properties.isResume() && Files.exists(checkpointFile) ? load(checkpointFile) : null;
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            long afterId = 0;
+            long bytes = 0;
+            if (checkpoint != null) {
+                afterId = Long.parseLong(checkpoint.getProperty("lastMemberId"));
+                bytes = Long.parseLong(checkpoint.getProperty("bytes"));
+                log.info("resuming export of {} after member {} at {} bytes", file, afterId, bytes);
+            }
+            channel.truncate(bytes);
+            channel.position(bytes);
+            exporter.export(channel, properties.getFormat(), properties.isGzip(), afterId, checkpoint == null,
+                    (lastMemberId, rows) -> {
+                        channel.force(false);
+                        save(checkpointFile, lastMemberId, channel.position());
+                    });
+        }
+    }
+
+    private static Properties load(Path checkpointFile) throws IOException {
+        Properties checkpoint = new Properties();
+        try (InputStream in = Files.newInputStream(checkpointFile)) {
+            checkpoint.load(in);
+        }
+        return checkpoint;
+    }
+
+    //임시 파일에 쓰고 바꿔 끼워서 checkpoint 파일이 반만 쓰인 채로 남지 않게 한다.
+    private static void save(Path checkpointFile, long lastMemberId, long bytes) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("lastMemberId", String.valueOf(lastMemberId));
+        checkpoint.setProperty("bytes", String.valueOf(bytes));
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            checkpoint.store(out, null);
+        }
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,240 @@
+package study.querydsl.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 회원 row 를 CSV / 바이너리로 인코딩해서 채널에 쓴다.
+ */
+//row 마다 문자열/바이트 배열을 만들지 않고 버퍼(ByteBuffer) 하나에 바로 인코딩하고, 버퍼가 차면 채널에 통째로 쓴다.
+//-> row 수와 상관없이 메모리 사용량이 버퍼 크기로 일정하고 row 당 할당이 거의 없다. (ASCII 가 아닌 문자열만 바이트 배열을 만든다.)
+//gzip 이면 채널 앞에 GZIPOutputStream 을 끼운다. checkpoint() 는 gzip member 를 끝내고 새로 시작하므로
+//checkpoint 시점까지 쓰인 바이트는 그 자체로 완결된 gzip 이다. (이어 쓰면 member 가 이어 붙은 gzip - gunzip, GZIPInputStream 으로 읽힌다.)
+//GZIPOutputStream 은 close() 에서만 Deflater(네이티브 메모리)를 돌려주는데 close() 는 out 까지 닫으므로
+//member 를 끝낼 때 GzipMember 가 직접 돌려준다. (finish() 만 하면 checkpoint 마다 Deflater 가 GC 될 때까지 남는다.)
+//내부 채널(out)은 닫지 않는다. 닫는 건 만든 쪽에서 한다.
+public class MemberExportWriter implements Closeable {
+    static final byte[] BINARY_MAGIC = {'M', 'E', 'M', '1'};
+    private static final byte[] CSV_HEADER = "member_id,username,age,team_id,team_name\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel out;
+    private final MemberExportFormat format;
+    private final boolean gzip;
+    private ByteBuffer buffer;
+    private GzipMember gzipStream;
+    private WritableByteChannel sink;
+    private long rows;
+
+    public MemberExportWriter(WritableByteChannel out, MemberExportFormat format, boolean gzip, int bufferSize) {
+        this.out = out;
+        this.format = format;
+        this.gzip = gzip;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    //새로 내보낼 때만 쓴다. (checkpoint 에서 이어 쓸 때는 이미 파일 앞에 있다.)
+    public void writeHeader() throws IOException {
+        ensure(CSV_HEADER.length);
+        buffer.put(format == MemberExportFormat.CSV ? CSV_HEADER : BINARY_MAGIC);
+    }
+
+    public void writeRow(long memberId, String username, int age, Long teamId, String teamName) throws IOException {
+        if (format == MemberExportFormat.CSV) {
+            writeCsv(memberId, username, age, teamId, teamName);
+        } else {
+            writeBinary(memberId, username, age, teamId, teamName);
+        }
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    //지금까지 인코딩한 row 를 모두 out 에 쓴다.
+    public void checkpoint() throws IOException {
+        drain();
+        if (gzipStream != null) {
+            GzipMember finished = gzipStream;
+            gzipStream = null;
+            sink = null;
+            finished.finishAndRelease();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+    }
+
+    //실패해서 더 쓰지 않을 때 - 쓰던 gzip member 를 끝내지 않고 Deflater 만 돌려준다. (close() 뒤에는 아무 일도 하지 않는다.)
+    public void release() {
+        if (gzipStream != null) {
+            gzipStream.release();
+            gzipStream = null;
+            sink = null;
+        }
+    }
+
+    private void writeCsv(long memberId, String username, int age, Long teamId, String teamName) throws IOException {
+        //숫자 3개(최대 20자) + 구분자 4개 + 줄바꿈 + 문자열 2개
+        ensure(3 * 20 + 5 + csvMaxBytes(username) + csvMaxBytes(teamName));
+        putDecimal(memberId);
+        buffer.put((byte) ',');
+        putCsvField(username);
+        buffer.put((byte) ',');
+        putDecimal(age);
+        buffer.put((byte) ',');
+        if (teamId != null) {
+            putDecimal(teamId);
+        }
+        buffer.put((byte) ',');
+        putCsvField(teamName);
+        buffer.put((byte) '\n');
+    }
+
+    private void writeBinary(long memberId, String username, int age, Long teamId, String teamName) throws IOException {
+        ensure(4 + 8 + 4 + binaryMaxBytes(username) + 1 + 8 + binaryMaxBytes(teamName));
+        int lengthAt = buffer.position();
+        buffer.position(lengthAt + 4);
+        buffer.putLong(memberId);
+        buffer.putInt(age);
+        putBinaryString(username);
+        if (teamId == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1);
+            buffer.putLong(teamId);
+            putBinaryString(teamName);
+        }
+        buffer.putInt(lengthAt, buffer.position() - lengthAt - 4);
+    }
+
+    //RFC 4180 - 구분자, 따옴표, 줄바꿈이 있으면 따옴표로 감싸고 따옴표는 두 번 쓴다.
+    private void putCsvField(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            putUtf8(value);
+            return;
+        }
+        buffer.put((byte) '"');
+        putUtf8(value.replace("\"", "\"\""));
+        buffer.put((byte) '"');
+    }
+
+    private void putBinaryString(String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        int lengthAt = buffer.position();
+        buffer.position(lengthAt + 4);
+        putUtf8(value);
+        buffer.putInt(lengthAt, buffer.position() - lengthAt - 4);
+    }
+
+    //ASCII 는 한 글자씩 바로 넣는다.
+    private void putUtf8(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                buffer.put(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void putDecimal(long value) {
+        if (value < 0) {
+            putUtf8(Long.toString(value));
+            return;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for (int at = end - 1; at >= end - digits; at--) {
+            buffer.put(at, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    //UTF-8 은 char 하나에 최대 3바이트 (서로게이트 쌍은 char 두 개에 4바이트), 두 번 쓰는 따옴표도 2바이트
+    private static int csvMaxBytes(String value) {
+        return value == null ? 0 : 2 + value.length() * 3;
+    }
+
+    private static int binaryMaxBytes(String value) {
+        return 4 + (value == null ? 0 : value.length() * 3);
+    }
+
+    //bytes 만큼 자리가 없으면 버퍼를 비운다. 버퍼보다 큰 row 는 버퍼를 키운다.
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        drain();
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(bytes);
+        }
+    }
+
+    private void drain() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        WritableByteChannel target = sink();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private WritableByteChannel sink() throws IOException {
+        if (!gzip) {
+            return out;
+        }
+        if (sink == null) {
+            gzipStream = new GzipMember(Channels.newOutputStream(out), buffer.capacity());
+            sink = Channels.newChannel(gzipStream);
+        }
+        return sink;
+    }
+
+    //gzip member 하나 - 끝나면 out 은 그대로 두고 Deflater 만 돌려준다.
+    private static class GzipMember extends GZIPOutputStream {
+        GzipMember(OutputStream out, int size) throws IOException {
+            super(out, size);
+        }
+
+        void finishAndRelease() throws IOException {
+            try {
+                finish();
+            } finally {
+                release();
+            }
+        }
+
+        void release() {
+            def.end();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package study.querydsl.export;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원/팀 대량 내보내기
+ */
+//findAll_Querydsl() 처럼 전체를 List 로 올리지 않고 JDBC 커서(iterate, FORWARD_ONLY)로 member.id 순으로 한 건씩 읽어서
+//MemberExportWriter 버퍼에 바로 인코딩한다. 엔티티가 아니라 컬럼만 조회하므로 영속성 컨텍스트에도 쌓이지 않는다.
+//member.id 순이므로 checkpoint 의 lastMemberId 를 afterId 로 넘기면 그 다음부터 이어서 내보낼 수 있다.
+@Slf4j
+@Component
+public class MemberExporter {
+    private final JPAQueryFactory queryFactory;
+    private final MemberExportProperties properties;
+
+    public MemberExporter(JPAQueryFactory queryFactory, MemberExportProperties properties) {
+        this.queryFactory = queryFactory;
+        this.properties = properties;
+    }
+
+    //afterId 보다 큰 회원을 out 에 쓰고 쓴 row 수를 돌려준다. 끝나면 마지막으로 한 번 더 checkpoint 한다.
+    //header - 새로 내보낼 때만 true (이어 쓸 때는 이미 앞에 있다.)
+    @Transactional(readOnly = true)
+    public long export(WritableByteChannel out, MemberExportFormat format, boolean gzip, long afterId, boolean header,
+                       MemberExportCheckpointListener listener) throws IOException {
+        long start = System.nanoTime();
+        long lastId = afterId;
+        MemberExportWriter writer = new MemberExportWriter(out, format, gzip, properties.getBufferSize());
+        try {
+            if (header) {
+                writer.writeHeader();
+            }
+            try (CloseableIterator<Tuple> rows = queryFactory
+                    .select(member.id, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.gt(afterId))
+                    .orderBy(member.id.asc())
+                    .setHint(QueryHints.HINT_FETCH_SIZE, properties.getFetchSize())
+                    .setHint(QueryHints.HINT_READONLY, true)
+                    .iterate()) {
+                while (rows.hasNext()) {
+                    Tuple row = rows.next();
+                    lastId = row.get(member.id);
+                    writer.writeRow(lastId, row.get(member.username), row.get(member.age), row.get(team.id), row.get(team.name));
+                    if (writer.getRows() % properties.getCheckpointInterval() == 0) {
+                        writer.checkpoint();
+                        listener.onCheckpoint(lastId, writer.getRows());
+                    }
+                }
+            }
+            writer.close();
+        } finally {
+            writer.release(); //실패했을 때 쓰던 gzip 의 Deflater
+        }
+        listener.onCheckpoint(lastId, writer.getRows());
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("exported members={} format={} gzip={} afterId={} in {}ms ({} rows/s)",
+                writer.getRows(), format, gzip, afterId, elapsedMillis, writer.getRows() * 1000 / elapsedMillis);
+        return writer.getRows();
+    }
+}
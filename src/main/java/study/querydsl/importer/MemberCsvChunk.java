@@ -0,0 +1,78 @@
+package study.querydsl.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//MemberCsvReader 가 읽은 회원 row 묶음 - 한 트랜잭션(JDBC 배치)으로 넣는 단위
+//컬럼별 배열로 들고 있어서 row 마다 객체를 만들지 않는다.
+public class MemberCsvChunk {
+    private static final int MAX_REJECTED = 10;
+
+    private final int index;
+    private final long firstLine;
+    private final String[] usernames;
+    private final int[] ages;
+    private final String[] teamNames;
+    private int size;
+    private int rejectedRows;
+    private final List<String> rejected = new ArrayList<>(); //"줄 번호: 이유" 최대 MAX_REJECTED 개
+
+    MemberCsvChunk(int index, long firstLine, int capacity) {
+        this.index = index;
+        this.firstLine = firstLine;
+        this.usernames = new String[capacity];
+        this.ages = new int[capacity];
+        this.teamNames = new String[capacity];
+    }
+
+    void add(String username, int age, String teamName) {
+        usernames[size] = username;
+        ages[size] = age;
+        teamNames[size] = teamName;
+        size++;
+    }
+
+    void reject(long line, String reason) {
+        rejectedRows++;
+        if (rejected.size() < MAX_REJECTED) {
+            rejected.add(line + ": " + reason);
+        }
+    }
+
+    boolean isFull() {
+        return size == usernames.length;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getFirstLine() {
+        return firstLine;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getUsername(int row) {
+        return usernames[row];
+    }
+
+    public int getAge(int row) {
+        return ages[row];
+    }
+
+    //팀이 없으면 null
+    public String getTeamName(int row) {
+        return teamNames[row];
+    }
+
+    public int getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public List<String> getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,228 @@
+package study.querydsl.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 메모리 맵 CSV 회원 리더
+ */
+//파일을 InputStream/Reader 로 복사해서 읽지 않고 windowSize 씩 메모리 맵(MappedByteBuffer)으로 열어서 바이트를 바로 해석한다.
+//- 페이지 캐시를 그대로 읽으므로 힙으로 복사하는 버퍼가 없고, 줄(String) 단위로 나누지 않는다.
+//- age 는 바이트에서 바로 숫자로 바꾸고, 문자열은 username, 팀 이름 컬럼만 만든다. 나머지 컬럼은 건너뛴다.
+//- row 가 window 경계에 걸치면 그 row 의 시작부터 다시 맵핑한다. (window 보다 긴 row 는 읽을 수 없다.)
+//첫 줄은 헤더이고 username, age, team_name(teamName) 컬럼을 이름으로 찾는다. (MemberExporter 의 CSV 도 그대로 읽힌다.)
+//RFC 4180 따옴표 규칙을 따르고 UTF-8 이다. 값이 잘못된 row 는 건너뛰고 MemberCsvChunk 에 줄 번호와 이유를 남긴다.
+public class MemberCsvReader implements Closeable {
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart; //window 의 0 번째 바이트의 파일 위치
+    private int position;     //window 안에서 다음 row 의 시작
+    private long line;        //다음 row 의 줄 번호 (1부터, 헤더 포함)
+
+    private int usernameColumn = -1;
+    private int ageColumn = -1;
+    private int teamColumn = -1;
+
+    private byte[] scratch = new byte[256];
+
+    public MemberCsvReader(Path file) throws IOException {
+        this(file, WINDOW_SIZE);
+    }
+
+    MemberCsvReader(Path file, int windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+        readHeader();
+    }
+
+    //다음 row 를 최대 chunkSize 건 읽는다. 파일 끝이면 null
+    public MemberCsvChunk next(int chunkIndex, int chunkSize) throws IOException {
+        MemberCsvChunk chunk = null;
+        while (chunk == null || !chunk.isFull()) {
+            int end = recordEnd();
+            if (end < 0) {
+                return chunk;
+            }
+            if (chunk == null) {
+                chunk = new MemberCsvChunk(chunkIndex, line, chunkSize);
+            }
+            parseRow(chunk, position, end);
+            position = Math.min(end + 1, window.limit());
+            line++;
+        }
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readHeader() throws IOException {
+        int end = recordEnd();
+        if (end < 0) {
+            throw new IllegalArgumentException("CSV 헤더가 없습니다.");
+        }
+        List<String> header = new ArrayList<>();
+        int at = position;
+        int limit = trimCarriageReturn(position, end);
+        if (limit - at >= 3 && window.get(at) == (byte) 0xEF && window.get(at + 1) == (byte) 0xBB && window.get(at + 2) == (byte) 0xBF) {
+            at += 3; //UTF-8 BOM
+        }
+        while (at <= limit) {
+            int next = fieldEnd(at, limit);
+            header.add(decode(at, next).trim());
+            at = next + 1;
+        }
+        for (int column = 0; column < header.size(); column++) {
+            String name = header.get(column).replace("_", "").toLowerCase();
+            if (name.equals("username")) usernameColumn = column;
+            if (name.equals("age")) ageColumn = column;
+            if (name.equals("teamname") || name.equals("team")) teamColumn = column;
+        }
+        if (usernameColumn < 0 || ageColumn < 0) {
+            throw new IllegalArgumentException("CSV 헤더에 username, age 컬럼이 있어야 합니다. header=" + header);
+        }
+        position = Math.min(end + 1, window.limit());
+        line = 2;
+    }
+
+    private void parseRow(MemberCsvChunk chunk, int start, int end) {
+        int limit = trimCarriageReturn(start, end);
+        if (limit == start) {
+            return; //빈 줄
+        }
+        String username = null;
+        String teamName = null;
+        Integer age = null;
+        String error = null;
+        int column = 0;
+        int at = start;
+        while (at <= limit) {
+            int next = fieldEnd(at, limit);
+            if (column == usernameColumn) {
+                username = next == at ? null : decode(at, next);
+            } else if (column == teamColumn) {
+                teamName = next == at ? null : decode(at, next);
+            } else if (column == ageColumn) {
+                age = parseAge(at, next);
+                if (age == null) {
+                    error = "age 가 숫자가 아닙니다. (" + decode(at, next) + ")";
+                }
+            }
+            at = next + 1;
+            column++;
+        }
+        if (error == null && column <= Math.max(usernameColumn, Math.max(ageColumn, teamColumn))) {
+            error = "컬럼 수가 부족합니다. (" + column + ")";
+        }
+        if (error != null) {
+            chunk.reject(line, error);
+            return;
+        }
+        chunk.add(username, age, teamName);
+    }
+
+    //at 에서 시작하는 필드의 끝(',' 또는 limit) 위치
+    private int fieldEnd(int at, int limit) {
+        boolean quoted = false;
+        for (int i = at; i < limit; i++) {
+            byte b = window.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == ',' && !quoted) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    //[from, to) 필드를 문자열로 - 따옴표로 감싸져 있으면 벗기고 "" 는 " 로 바꾼다.
+    private String decode(int from, int to) {
+        boolean quoted = to - from >= 2 && window.get(from) == '"' && window.get(to - 1) == '"';
+        if (quoted) {
+            from++;
+            to--;
+        }
+        if (scratch.length < to - from) {
+            scratch = new byte[Math.max(to - from, scratch.length * 2)];
+        }
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            byte b = window.get(i);
+            scratch[length++] = b;
+            if (quoted && b == '"') {
+                i++; //"" -> "
+            }
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    //숫자가 아니면 null
+    private Integer parseAge(int from, int to) {
+        while (from < to && window.get(from) == ' ') from++;
+        while (to > from && window.get(to - 1) == ' ') to--;
+        if (from == to || to - from > 9) {
+            return null;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = window.get(i);
+            if (b < '0' || b > '9') {
+                return null;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private int trimCarriageReturn(int start, int end) {
+        return end > start && window.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    //position 에서 시작하는 row 의 끝('\n' 또는 파일 끝) 위치. 남은 row 가 없으면 -1
+    //window 가 row 중간에서 끝나면 row 시작부터 다시 맵핑한다.
+    private int recordEnd() throws IOException {
+        while (true) {
+            if (windowStart + position >= fileSize) {
+                return -1;
+            }
+            boolean quoted = false;
+            int limit = window.limit();
+            for (int i = position; i < limit; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    return i;
+                }
+            }
+            if (windowStart + limit == fileSize) {
+                return limit; //마지막 줄에 줄바꿈이 없다.
+            }
+            if (position == 0) {
+                throw new IOException("row 가 window(" + windowSize + " bytes)보다 깁니다. line=" + line);
+            }
+            map(windowStart + position);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+        position = 0;
+    }
+}
@@ -0,0 +1,18 @@
+package study.querydsl.importer;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+//CSV 회원 가져오기 설정 (member.import.*)
+//file 은 import 프로파일의 MemberImportRunner 만 사용한다.
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "member.import")
+public class MemberImportProperties {
+    private String file = "members.csv";
+    private int chunkSize = 5000; //한 트랜잭션에서 넣을 회원 수
+    private int batchSize = 500;  //JDBC 배치 하나에 묶을 insert 수
+    private int threads = 4;      //청크를 동시에 넣을 writer 쓰레드 수 (커넥션 풀보다 작게)
+}
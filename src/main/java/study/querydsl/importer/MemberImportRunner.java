@@ -0,0 +1,40 @@
+package study.querydsl.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import study.querydsl.Dto.MemberImportResult;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * CSV 회원 가져오기 CLI (import 프로파일)
+ */
+//java -jar querydsl.jar --spring.profiles.active=import --spring.main.web-application-type=none \
+//     --member.import.file=members.csv --member.import.threads=4
+//실패한 청크와 건너뛴 row 는 줄 번호와 함께 로그로 남긴다.
+@Slf4j
+@Profile("import")
+@Component
+public class MemberImportRunner implements ApplicationRunner {
+    private final MemberImporter importer;
+    private final MemberImportProperties properties;
+
+    public MemberImportRunner(MemberImporter importer, MemberImportProperties properties) {
+        this.importer = importer;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        MemberImportResult result = importer.importCsv(Paths.get(properties.getFile()));
+        for (MemberImportResult.ChunkReport report : result.getChunkReports()) {
+            log.warn("chunk {} (line {}): imported={} rejected={} {} error={}", report.getChunk(), report.getFirstLine(),
+                    report.getImportedRows(), report.getRejectedRows(), report.getRejected(), report.getError());
+        }
+        log.info("{}", result);
+    }
+}
@@ -0,0 +1,173 @@
+package study.querydsl.importer;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.MemberImportResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberBulkChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * CSV 회원 대량 가져오기
+ */
+//save() 를 row 마다 호출하면 row 마다 엔티티, 영속성 컨텍스트 항목, dirty checking 스냅샷이 생기고 트랜잭션 하나가 끝없이 커진다.
+//- MemberCsvReader(메모리 맵)가 chunkSize 건씩 읽어서 writer 쓰레드에 넘긴다.
+//  처리 중인 청크는 threads * 2 개까지만 두고 그 이상이면 읽기를 멈춘다. -> 파일 크기와 상관없이 메모리 사용량이 일정하다.
+//- 팀 이름은 TeamDictionary 로 팀 id 로 바꾸고 없는 팀은 한꺼번에 만든다.
+//- 청크마다 별도 트랜잭션에서 엔티티 없이 JDBC 배치 insert 한다. id 는 하이버네이트의 시퀀스 생성기(pooled)에서 받으므로 JPA 로 넣는 회원과 겹치지 않는다.
+//- 실패한 청크는 롤백되고 나머지 청크는 계속 진행한다. 결과의 ChunkReport 에 청크별로 남긴다.
+//엔티티 리스너를 거치지 않으므로 끝나면 MemberBulkChangedEvent 를 발행한다. (count 캐시, 인메모리 인덱스 등)
+//청크마다 커밋해야 하므로 트랜잭션 안에서 호출하면 IllegalStateException 이다.
+@Slf4j
+@Component
+public class MemberImporter {
+    //SpringPhysicalNamingStrategy 로 만들어지는 Member 테이블/컬럼 이름
+    private static final String INSERT_SQL = "insert into member (member_id, age, team_id, username) values (?, ?, ?, ?)";
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+    private final MemberImportProperties properties;
+
+    public MemberImporter(EntityManager em, JPAQueryFactory queryFactory, ApplicationEventPublisher eventPublisher,
+                          PlatformTransactionManager transactionManager, MemberImportProperties properties) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.eventPublisher = eventPublisher;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+    }
+
+    public MemberImportResult importCsv(Path file) throws IOException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("청크마다 커밋해야 하므로 트랜잭션 밖에서 호출해야 합니다. file=" + file);
+        }
+        long start = System.nanoTime();
+        int threads = Math.max(1, properties.getThreads());
+        TeamDictionary teams = new TeamDictionary(em, queryFactory, chunkTransaction);
+        Semaphore inFlight = new Semaphore(threads * 2);
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        List<Future<MemberImportResult.ChunkReport>> futures = new ArrayList<>();
+        try (MemberCsvReader reader = new MemberCsvReader(file)) {
+            MemberCsvChunk chunk;
+            while ((chunk = reader.next(futures.size(), properties.getChunkSize())) != null) {
+                inFlight.acquire();
+                MemberCsvChunk submitted = chunk;
+                futures.add(writers.submit(() -> {
+                    try {
+                        return write(submitted, teams);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            return collect(futures, teams, start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("가져오기가 중단되었습니다. file=" + file, e);
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    private MemberImportResult.ChunkReport write(MemberCsvChunk chunk, TeamDictionary teams) {
+        try {
+            if (chunk.size() > 0) {
+                Long[] teamIds = teams.resolve(chunk);
+                chunkTransaction.executeWithoutResult(status -> insert(chunk, teamIds));
+            }
+            return new MemberImportResult.ChunkReport(chunk.getIndex(), chunk.getFirstLine(), chunk.size(),
+                    chunk.getRejectedRows(), chunk.getRejected(), null);
+        } catch (RuntimeException e) {
+            log.warn("import chunk {} (line {}) failed", chunk.getIndex(), chunk.getFirstLine(), e);
+            return new MemberImportResult.ChunkReport(chunk.getIndex(), chunk.getFirstLine(), 0,
+                    chunk.getRejectedRows(), chunk.getRejected(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    //id 를 먼저 모두 받아 두고 batchSize 건씩 executeBatch 한다.
+    private void insert(MemberCsvChunk chunk, Long[] teamIds) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        IdentifierGenerator generator = session.getFactory().getMetamodel()
+                .entityPersister(Member.class).getIdentifierGenerator();
+        long[] ids = new long[chunk.size()];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = ((Number) generator.generate(session, null)).longValue();
+        }
+        int batchSize = Math.max(1, properties.getBatchSize());
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (int row = 0; row < ids.length; row++) {
+                    statement.setLong(1, ids[row]);
+                    statement.setInt(2, chunk.getAge(row));
+                    if (teamIds[row] == null) {
+                        statement.setNull(3, Types.BIGINT);
+                    } else {
+                        statement.setLong(3, teamIds[row]);
+                    }
+                    statement.setString(4, chunk.getUsername(row));
+                    statement.addBatch();
+                    if ((row + 1) % batchSize == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private MemberImportResult collect(List<Future<MemberImportResult.ChunkReport>> futures, TeamDictionary teams,
+                                       long start) throws InterruptedException {
+        List<MemberImportResult.ChunkReport> reports = new ArrayList<>();
+        long imported = 0;
+        long rejected = 0;
+        int failed = 0;
+        for (Future<MemberImportResult.ChunkReport> future : futures) {
+            MemberImportResult.ChunkReport report;
+            try {
+                report = future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("가져오기에 실패했습니다.", e.getCause());
+            }
+            imported += report.getImportedRows();
+            rejected += report.getRejectedRows();
+            if (report.isFailed()) {
+                failed++;
+            }
+            if (report.isFailed() || report.getRejectedRows() > 0) {
+                reports.add(report);
+            }
+        }
+        if (imported > 0) {
+            eventPublisher.publishEvent(new MemberBulkChangedEvent("import", imported));
+        }
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("imported members={} rejected={} chunks={} failedChunks={} createdTeams={} in {}ms ({} rows/s)",
+                imported, rejected, futures.size(), failed, teams.getCreatedTeams(), elapsedMillis,
+                imported * 1000 / elapsedMillis);
+        return new MemberImportResult(futures.size(), failed, imported, rejected, teams.getCreatedTeams(),
+                elapsedMillis, reports);
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.importer;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.entity.QTeam.team;
+
+//가져오기 한 번 동안 쓰는 팀 이름 -> 팀 id 사전
+//청크에 처음 나온 팀 이름만 한꺼번에 조회하고(in 쿼리), DB 에도 없는 팀은 한 트랜잭션에서 모두 만든다.
+//이후 같은 이름은 쿼리 없이 사전에서 꺼낸다. 이름이 같은 팀이 여러 개면 id 가 가장 작은 팀을 쓴다.
+//여러 writer 쓰레드가 같은 팀을 두 번 만들지 않도록 사전에 없는 이름의 처리는 하나씩(synchronized) 한다.
+class TeamDictionary {
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transaction;
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+    private long createdTeams;
+
+    TeamDictionary(EntityManager em, JPAQueryFactory queryFactory, TransactionTemplate transaction) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.transaction = transaction;
+    }
+
+    //row 별 팀 id (팀이 없으면 null)
+    Long[] resolve(MemberCsvChunk chunk) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (int row = 0; row < chunk.size(); row++) {
+            String name = chunk.getTeamName(row);
+            if (name != null && !ids.containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            load(missing);
+        }
+        Long[] teamIds = new Long[chunk.size()];
+        for (int row = 0; row < chunk.size(); row++) {
+            String name = chunk.getTeamName(row);
+            teamIds[row] = name == null ? null : ids.get(name);
+        }
+        return teamIds;
+    }
+
+    synchronized long getCreatedTeams() {
+        return createdTeams;
+    }
+
+    private synchronized void load(Set<String> names) {
+        names.removeIf(ids::containsKey); //기다리는 동안 다른 쓰레드가 넣었을 수 있다.
+        if (names.isEmpty()) {
+            return;
+        }
+        int[] created = {0};
+        Map<String, Long> loaded = transaction.execute(status -> {
+            Map<String, Long> found = new HashMap<>();
+            List<String> pending = new ArrayList<>(names);
+            for (int from = 0; from < pending.size(); from += IN_CHUNK_SIZE) {
+                List<String> chunk = pending.subList(from, Math.min(from + IN_CHUNK_SIZE, pending.size()));
+                for (Tuple row : queryFactory
+                        .select(team.name, team.id.min())
+                        .from(team)
+                        .where(team.name.in(chunk))
+                        .groupBy(team.name)
+                        .fetch()) {
+                    found.put(row.get(team.name), row.get(team.id.min()));
+                }
+            }
+            for (String name : pending) {
+                if (!found.containsKey(name)) {
+                    Team newTeam = new Team(name);
+                    em.persist(newTeam); //시퀀스 pooled 할당 + JDBC 배치로 한꺼번에 insert 된다.
+                    found.put(name, newTeam.getId());
+                    created[0]++;
+                }
+            }
+            return found;
+        });
+        ids.putAll(loaded); //커밋된 뒤에 넣는다.
+        createdTeams += created[0];
+    }
+}
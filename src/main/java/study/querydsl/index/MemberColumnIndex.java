@@ -0,0 +1,256 @@
+package study.querydsl.index;
+
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.Dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.springframework.util.ObjectUtils.isEmpty;
+
+/**
+ * 회원 검색용 컬럼 인덱스
+ */
+//회원 한 명을 객체로 두지 않고 슬롯 번호로 두고, 컬럼마다 배열에 담는다.
+//- ids(long[]), ages(int[]), usernameCodes(int[]), teamCodes(int[]) - 슬롯 번호가 배열 인덱스
+//- username, 팀은 사전(dictionary)으로 코드화해서 같은 문자열을 한 번만 들고 있는다.
+//- username 코드별, 팀 코드별, 나이별로 해당 슬롯의 비트맵(BitSet)을 두고 검색 조건은 비트맵 AND 로 평가한다.
+//삭제된 슬롯은 재사용한다. 사전의 username 은 지우지 않으므로 회원이 계속 바뀌면 rebuild 로 정리한다.
+//읽기는 동시에, 쓰기는 하나씩 (ReadWriteLock)
+public class MemberColumnIndex {
+    private static final int NO_TEAM = -1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[16];
+    private int[] ages = new int[16];
+    private int[] usernameCodes = new int[16];
+    private int[] teamCodes = new int[16];
+    private int slotCount;
+    private final BitSet live = new BitSet();
+    private final BitSet free = new BitSet();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    private final Map<String, Integer> usernameCodeByValue = new HashMap<>();
+    private final List<String> usernames = new ArrayList<>();
+    private final List<BitSet> usernamePostings = new ArrayList<>();
+
+    private final Map<Long, Integer> teamCodeById = new HashMap<>();
+    private final List<Long> teamIds = new ArrayList<>();
+    private final List<String> teamNames = new ArrayList<>();
+    private final List<BitSet> teamPostings = new ArrayList<>();
+
+    private final NavigableMap<Integer, BitSet> agePostings = new TreeMap<>();
+
+    //teamName 이 null 이면 이미 알고 있는 팀 이름을 그대로 쓴다. (모르는 팀이면 호출하는 쪽에서 채워서 넘겨야 한다.)
+    public void upsert(long memberId, String username, int age, Long teamId, String teamName) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotById.get(memberId);
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                unlink(slot);
+            } else {
+                slot = allocate();
+                slotById.put(memberId, slot);
+            }
+            ids[slot] = memberId;
+            ages[slot] = age;
+            usernameCodes[slot] = usernameCode(username);
+            teamCodes[slot] = teamId == null ? NO_TEAM : teamCode(teamId, teamName);
+            link(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long memberId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(memberId);
+            if (slot != null) {
+                unlink(slot);
+                free.set(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean containsTeam(long teamId) {
+        lock.readLock().lock();
+        try {
+            return teamCodeById.containsKey(teamId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //MemberQueryTemplates 와 같은 의미 (null, "" 은 조건 없음), 결과는 member.id 순
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        lock.readLock().lock();
+        try {
+            BitSet matched = (BitSet) live.clone();
+            if (!isEmpty(condition.getUsername())) {
+                Integer code = usernameCodeByValue.get(condition.getUsername());
+                if (code == null) {
+                    return new ArrayList<>();
+                }
+                matched.and(usernamePostings.get(code));
+            }
+            if (!isEmpty(condition.getTeamName())) {
+                matched.and(teamsNamed(condition.getTeamName()));
+            }
+            if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+                matched.and(agesBetween(condition.getAgeGoe(), condition.getAgeLoe()));
+            }
+            if (!isEmpty(condition.getUsernamePrefix()) || !isEmpty(condition.getUsernameContains())) {
+                matched.and(usernamesMatching(condition.getUsernamePrefix(), condition.getUsernameContains()));
+            }
+            return toDtos(matched);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet teamsNamed(String teamName) {
+        BitSet slots = new BitSet();
+        for (int code = 0; code < teamNames.size(); code++) {
+            if (teamName.equals(teamNames.get(code))) {
+                slots.or(teamPostings.get(code));
+            }
+        }
+        return slots;
+    }
+
+    //username 사전을 훑어서 prefix 로 시작하고 contains 를 포함하는 username 의 슬롯을 모은다.
+    private BitSet usernamesMatching(String prefix, String contains) {
+        BitSet slots = new BitSet();
+        for (int code = 0; code < usernames.size(); code++) {
+            String username = usernames.get(code);
+            if (username != null
+                    && (isEmpty(prefix) || username.startsWith(prefix))
+                    && (isEmpty(contains) || username.contains(contains))) {
+                slots.or(usernamePostings.get(code));
+            }
+        }
+        return slots;
+    }
+
+    private BitSet agesBetween(Integer ageGoe, Integer ageLoe) {
+        BitSet slots = new BitSet();
+        if (ageGoe != null && ageLoe != null && ageGoe > ageLoe) {
+            return slots;
+        }
+        NavigableMap<Integer, BitSet> range = agePostings;
+        if (ageGoe != null) {
+            range = range.tailMap(ageGoe, true);
+        }
+        if (ageLoe != null) {
+            range = range.headMap(ageLoe, true);
+        }
+        for (BitSet posting : range.values()) {
+            slots.or(posting);
+        }
+        return slots;
+    }
+
+    private List<MemberTeamDto> toDtos(BitSet matched) {
+        List<MemberTeamDto> result = new ArrayList<>(matched.cardinality());
+        for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+            int teamCode = teamCodes[slot];
+            result.add(new MemberTeamDto(
+                    ids[slot],
+                    usernames.get(usernameCodes[slot]),
+                    ages[slot],
+                    teamCode == NO_TEAM ? null : teamIds.get(teamCode),
+                    teamCode == NO_TEAM ? null : teamNames.get(teamCode)));
+        }
+        result.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+        return result;
+    }
+
+    private int allocate() {
+        int slot = free.nextSetBit(0);
+        if (slot >= 0) {
+            free.clear(slot);
+            return slot;
+        }
+        if (slotCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+            teamCodes = Arrays.copyOf(teamCodes, capacity);
+        }
+        return slotCount++;
+    }
+
+    private void link(int slot) {
+        live.set(slot);
+        usernamePostings.get(usernameCodes[slot]).set(slot);
+        if (teamCodes[slot] != NO_TEAM) {
+            teamPostings.get(teamCodes[slot]).set(slot);
+        }
+        agePostings.computeIfAbsent(ages[slot], age -> new BitSet()).set(slot);
+    }
+
+    private void unlink(int slot) {
+        live.clear(slot);
+        usernamePostings.get(usernameCodes[slot]).clear(slot);
+        if (teamCodes[slot] != NO_TEAM) {
+            teamPostings.get(teamCodes[slot]).clear(slot);
+        }
+        BitSet agePosting = agePostings.get(ages[slot]);
+        agePosting.clear(slot);
+        if (agePosting.isEmpty()) {
+            agePostings.remove(ages[slot]);
+        }
+    }
+
+    private int usernameCode(String username) {
+        Integer code = usernameCodeByValue.get(username);
+        if (code == null) {
+            code = usernames.size();
+            String interned = username == null ? null : username.intern();
+            usernameCodeByValue.put(interned, code);
+            usernames.add(interned);
+            usernamePostings.add(new BitSet());
+        }
+        return code;
+    }
+
+    //팀 이름이 바뀌었다면(teamName 이 다르면) 사전의 이름도 바꾼다.
+    private int teamCode(long teamId, String teamName) {
+        Integer code = teamCodeById.get(teamId);
+        if (code == null) {
+            code = teamIds.size();
+            teamCodeById.put(teamId, code);
+            teamIds.add(teamId);
+            teamNames.add(teamName);
+            teamPostings.add(new BitSet());
+        } else if (teamName != null && !teamName.equals(teamNames.get(code))) {
+            teamNames.set(code, teamName);
+        }
+        return code;
+    }
+}
@@ -0,0 +1,245 @@
+package study.querydsl.index;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.MemberBulkChangedEvent;
+import study.querydsl.entity.MemberChangedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * Member 변경 이벤트로 유지되는 인메모리 뷰
+ */
+//MemberSearchIndex, TeamStatisticsStore, UsernameSearchIndex 가 같은 방식으로 유지된다.
+//- 켜져 있으면 애플리케이션이 뜬 뒤 백그라운드에서 전체 회원(id, username, age, team id, team name - usesTeamName())을 읽어서 만든다.
+//- Member 저장/수정/삭제는 커밋된 뒤(AFTER_COMMIT) MemberChangedEvent 로 반영한다.
+//- 벌크 연산(MemberBulkChangedEvent)은 어떤 row 가 바뀌었는지 모르므로 다시 만든다. 다시 만드는 동안 들어온 변경은 모아 두었다가 이어서 반영한다.
+//팀 이름 변경은 Member 이벤트로 들어오지 않으므로 rebuild() 를 호출해야 반영된다.
+@Slf4j
+public abstract class MemberEventProjection<V> implements DisposableBean {
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+
+    private final String name;
+    private final boolean enabled;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService rebuilder;
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private volatile V view; //null 이면 아직 준비되지 않음
+    private List<MemberChangedEvent> pending; //rebuild 중에 들어온 변경 (this 로 동기화)
+    private long bulkGeneration; //rebuild 도중에 벌크 연산이 있었다면 그 결과는 쓰지 않는다. (this 로 동기화)
+
+    protected MemberEventProjection(String name, boolean enabled, JPAQueryFactory queryFactory,
+                                    PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.enabled = enabled;
+        this.queryFactory = queryFactory;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        //AFTER_COMMIT 이벤트 안에서는 끝난 트랜잭션이 아직 묶여 있으므로 새 트랜잭션으로 조회한다.
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    protected abstract V newView();
+
+    //teamName 이 null 이면 뷰가 알고 있는 팀 이름을 그대로 쓴다. (모르는 팀이면 채워서 넘겨준다.)
+    protected abstract void upsert(V view, long memberId, String username, int age, Long teamId, String teamName);
+
+    protected abstract void remove(V view, long memberId);
+
+    protected abstract boolean containsTeam(V view, long teamId);
+
+    //팀 이름을 쓰지 않는 뷰는 false 로 바꾼다. -> 전체 로드에서 team 조인을 빼고(teamName 은 null), 변경 이벤트에서도 팀 이름을 조회하지 않는다.
+    protected boolean usesTeamName() {
+        return true;
+    }
+
+    //준비되지 않았으면 null
+    protected V view() {
+        return view;
+    }
+
+    public boolean isReady() {
+        return view != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuildAsync();
+        }
+    }
+
+    //벌크 연산이 청크마다 이벤트를 발행해도 아직 시작하지 않은 rebuild 가 있으면 하나로 합친다.
+    public void rebuildAsync() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildScheduled.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    //전체 회원을 member.id 순으로 LOAD_CHUNK_SIZE 건씩 읽어서 새 뷰를 만들고 바꿔 끼운다.
+    public void rebuild() {
+        long generation;
+        synchronized (this) {
+            pending = new ArrayList<>();
+            generation = bulkGeneration;
+        }
+        long start = System.nanoTime();
+        V rebuilt;
+        try {
+            rebuilt = load();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            log.warn("{} build failed - falls back to the database", name, e);
+            return;
+        }
+        //새 뷰는 바꿔 끼우기 전까지 이 쓰레드만 쓰므로 밀린 변경은 락 밖에서 반영한다. (팀 이름 조회도 락 밖에서 한다.)
+        //반영하는 동안 또 들어온 변경이 없을 때 락 안에서 바꿔 끼운다.
+        while (true) {
+            List<MemberChangedEvent> changes;
+            synchronized (this) {
+                changes = pending;
+                if (changes.isEmpty()) {
+                    pending = null;
+                    if (generation != bulkGeneration) {
+                        return; //뒤이어 예약된 rebuild 가 다시 만든다.
+                    }
+                    view = rebuilt;
+                    break;
+                }
+                pending = new ArrayList<>();
+            }
+            for (MemberChangedEvent event : changes) {
+                apply(rebuilt, event, teamNameOf(rebuilt, event));
+            }
+        }
+        log.info("{} built in {}ms", name, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private V load() {
+        V loaded = newView();
+        boolean withTeamName = usesTeamName();
+        long lastId = 0;
+        while (true) {
+            long after = lastId;
+            List<Tuple> rows = readOnlyTransaction.execute(status -> loadQuery(withTeamName)
+                    .where(member.id.gt(after))
+                    .orderBy(member.id.asc())
+                    .limit(LOAD_CHUNK_SIZE)
+                    .fetch());
+            for (Tuple row : rows) {
+                upsert(loaded, row.get(member.id), row.get(member.username), row.get(member.age),
+                        row.get(member.team.id), withTeamName ? row.get(team.name) : null);
+                lastId = row.get(member.id);
+            }
+            if (rows.size() < LOAD_CHUNK_SIZE) {
+                return loaded;
+            }
+        }
+    }
+
+    //member.team.id 는 member 테이블의 외래 키라서 조인 없이 읽는다.
+    private JPAQuery<Tuple> loadQuery(boolean withTeamName) {
+        if (!withTeamName) {
+            return queryFactory
+                    .select(member.id, member.username, member.age, member.team.id)
+                    .from(member);
+        }
+        return queryFactory
+                .select(member.id, member.username, member.age, member.team.id, team.name)
+                .from(member)
+                .leftJoin(member.team, team);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        //DB 를 기다리는 동안 다른 변경과 rebuild 가 밀리지 않도록 팀 이름은 락 밖에서 조회한다. (뷰는 스스로 동기화된다.)
+        //조회하는 사이에 뷰가 바뀌었으면 바뀐 뷰 기준으로 다시 확인한다. rebuild 중인 새 뷰에는 rebuild 가 따로 반영한다.
+        while (true) {
+            V current = view;
+            String teamName = current == null ? null : teamNameOf(current, event);
+            synchronized (this) {
+                if (view != current) {
+                    continue;
+                }
+                if (pending != null) {
+                    pending.add(event);
+                }
+                if (current != null) {
+                    apply(current, event, teamName);
+                }
+                return;
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMemberBulkChanged(MemberBulkChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            bulkGeneration++;
+            view = null; //다시 만들어질 때까지 DB 로 조회한다.
+        }
+        rebuildAsync();
+    }
+
+    @Override
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+
+    private void apply(V target, MemberChangedEvent event, String teamName) {
+        if (event.getType() == MemberChangedEvent.Type.REMOVE) {
+            remove(target, event.getMemberId());
+            return;
+        }
+        upsert(target, event.getMemberId(), event.getUsername(), event.getAge(), event.getTeamId(), teamName);
+    }
+
+    //이벤트에 팀 이름이 없고 뷰도 모르는 팀일 때만 조회한다. 그 밖에는 이벤트의 값(null 이면 뷰가 아는 이름)을 쓴다.
+    private String teamNameOf(V target, MemberChangedEvent event) {
+        String teamName = event.getTeamName();
+        if (!usesTeamName() || event.getType() == MemberChangedEvent.Type.REMOVE || event.getTeamId() == null || teamName != null
+                || containsTeam(target, event.getTeamId())) {
+            return teamName;
+        }
+        return readOnlyTransaction.execute(status -> queryFactory
+                .select(team.name)
+                .from(team)
+                .where(team.id.eq(event.getTeamId()))
+                .fetchOne());
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.index;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.Dto.MemberTeamDto;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 회원 검색 인메모리 인덱스 (member.search-index.enabled)
+ */
+//username/teamName/age 조건 검색(MemberJpaRepository.search)을 DB 대신 MemberColumnIndex 로 처리한다.
+//만들어지고 유지되는 방식은 MemberEventProjection 참고 - 준비되기 전에는 search 가 DB로 간다.
+@Component
+public class MemberSearchIndex extends MemberEventProjection<MemberColumnIndex> {
+
+    public MemberSearchIndex(@Value("${member.search-index.enabled:false}") boolean enabled,
+                             JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+        super("member-search-index", enabled, queryFactory, transactionManager);
+    }
+
+    //인덱스로 처리할 수 없으면 empty -> DB 로 조회한다.
+    //쓰기 트랜잭션 안이라면 아직 커밋되지 않은 자기 변경이 인덱스에 없으므로 DB 로 보낸다.
+    public Optional<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        MemberColumnIndex current = view();
+        if (current == null
+                || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return Optional.empty();
+        }
+        return Optional.of(current.search(condition));
+    }
+
+    @Override
+    protected MemberColumnIndex newView() {
+        return new MemberColumnIndex();
+    }
+
+    @Override
+    protected void upsert(MemberColumnIndex view, long memberId, String username, int age, Long teamId, String teamName) {
+        view.upsert(memberId, username, age, teamId, teamName);
+    }
+
+    @Override
+    protected void remove(MemberColumnIndex view, long memberId) {
+        view.remove(memberId);
+    }
+
+    @Override
+    protected boolean containsTeam(MemberColumnIndex view, long teamId) {
+        return view.containsTeam(teamId);
+    }
+}
@@ -0,0 +1,86 @@
+package study.querydsl.index;
+
+import study.querydsl.Dto.TeamStatisticsDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 팀별 나이 통계 (증분 갱신)
+ */
+//회원마다 (팀, 나이) 스냅샷을 들고 있다가 바뀐 만큼만 팀 통계에서 빼고 더한다.
+//min/max 는 회원이 빠질 때 다시 구해야 하므로 팀마다 나이별 인원수(TreeMap)를 둔다.
+//통계 조회는 팀 수만큼만 돈다. (회원 테이블을 읽지 않는다.) 팀이 없는 회원은 집계하지 않는다. (inner join 과 같음)
+public class TeamAgeStatistics {
+    private final Map<Long, MemberSnapshot> members = new HashMap<>();
+    private final Map<Long, TeamAges> teams = new HashMap<>();
+    private final Map<Long, String> teamNames = new HashMap<>();
+
+    //teamName 이 null 이면 알고 있는 팀 이름을 그대로 쓴다.
+    public synchronized void upsert(long memberId, Long teamId, String teamName, int age) {
+        remove(memberId);
+        if (teamId == null) {
+            return;
+        }
+        members.put(memberId, new MemberSnapshot(teamId, age));
+        teams.computeIfAbsent(teamId, id -> new TeamAges()).add(age);
+        if (teamName != null) {
+            teamNames.put(teamId, teamName);
+        }
+    }
+
+    public synchronized void remove(long memberId) {
+        MemberSnapshot previous = members.remove(memberId);
+        if (previous == null) {
+            return;
+        }
+        TeamAges ages = teams.get(previous.teamId);
+        ages.remove(previous.age);
+        if (ages.count == 0) {
+            teams.remove(previous.teamId);
+        }
+    }
+
+    public synchronized boolean containsTeam(long teamId) {
+        return teamNames.containsKey(teamId);
+    }
+
+    //회원이 한 명 이상인 팀의 통계 (팀 id 순)
+    public synchronized List<TeamStatisticsDto> statistics() {
+        List<TeamStatisticsDto> result = new ArrayList<>(teams.size());
+        new TreeMap<>(teams).forEach((teamId, ages) -> result.add(new TeamStatisticsDto(
+                teamId, teamNames.get(teamId), ages.count, ages.sum, ages.histogram.firstKey(), ages.histogram.lastKey())));
+        return result;
+    }
+
+    private static class MemberSnapshot {
+        private final long teamId;
+        private final int age;
+
+        MemberSnapshot(long teamId, int age) {
+            this.teamId = teamId;
+            this.age = age;
+        }
+    }
+
+    private static class TeamAges {
+        private long count;
+        private long sum;
+        private final TreeMap<Integer, Integer> histogram = new TreeMap<>(); //나이 -> 인원수
+
+        void add(int age) {
+            count++;
+            sum += age;
+            histogram.merge(age, 1, Integer::sum);
+        }
+
+        void remove(int age) {
+            count--;
+            sum -= age;
+            histogram.computeIfPresent(age, (key, n) -> n == 1 ? null : n - 1);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.index;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.Dto.TeamStatisticsDto;
+import study.querydsl.repository.TeamJpaRepository;
+
+import java.util.List;
+
+/**
+ * 팀별 나이 통계 (member.team-stats.enabled)
+ */
+//팀별 count/sum/min/max/avg 를 group by 쿼리(member 전체 스캔) 대신 TeamAgeStatistics 에서 팀 수만큼만 읽어서 돌려준다.
+//회원 저장, changeTeam(), 나이 변경, 삭제, 벌크 연산이 반영되는 방식은 MemberEventProjection 참고
+//준비되기 전에는 TeamJpaRepository.findAgeStatistics()(group by 쿼리)로 조회한다.
+@Component
+public class TeamStatisticsStore extends MemberEventProjection<TeamAgeStatistics> {
+    private final TeamJpaRepository teamJpaRepository;
+
+    public TeamStatisticsStore(@Value("${member.team-stats.enabled:false}") boolean enabled,
+                               JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+                               TeamJpaRepository teamJpaRepository) {
+        super("team-statistics", enabled, queryFactory, transactionManager);
+        this.teamJpaRepository = teamJpaRepository;
+    }
+
+    public List<TeamStatisticsDto> statistics() {
+        TeamAgeStatistics current = view();
+        return current == null ? teamJpaRepository.findAgeStatistics() : current.statistics();
+    }
+
+    //증분 갱신한 결과가 전체 스캔 결과와 같은지 확인한다. (준비되지 않았으면 false)
+    public boolean verify() {
+        TeamAgeStatistics current = view();
+        return current != null && current.statistics().equals(teamJpaRepository.findAgeStatistics());
+    }
+
+    @Override
+    protected TeamAgeStatistics newView() {
+        return new TeamAgeStatistics();
+    }
+
+    @Override
+    protected void upsert(TeamAgeStatistics view, long memberId, String username, int age, Long teamId, String teamName) {
+        view.upsert(memberId, teamId, teamName, age);
+    }
+
+    @Override
+    protected void remove(TeamAgeStatistics view, long memberId) {
+        view.remove(memberId);
+    }
+
+    @Override
+    protected boolean containsTeam(TeamAgeStatistics view, long teamId) {
+        return view.containsTeam(teamId);
+    }
+}
@@ -0,0 +1,188 @@
+package study.querydsl.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.springframework.util.ObjectUtils.isEmpty;
+
+/**
+ * username 앞부분(prefix)/부분 문자열(contains) 검색용 인덱스
+ */
+//회원 한 명을 슬롯 번호로 두고(MemberColumnIndex 와 같은 방식) 두 가지 색인을 유지한다.
+//- prefix   : username 정렬 맵(TreeMap). "abc" 로 시작하는 username 은 ["abc", "abc￿") 범위에 모여 있다.
+//- contains : username 의 연속된 세 글자(trigram)별 슬롯 비트맵. 검색어의 trigram 비트맵을 전부 AND 한 뒤
+//             실제로 포함하는지 다시 확인한다. (trigram 이 모두 있어도 순서가 다를 수 있다.)
+//             세 글자보다 짧은 검색어는 trigram 이 없으므로 username 을 전부 확인한다.
+//대소문자를 구분한다. (H2 의 like 와 같은 기준)
+//읽기는 동시에, 쓰기는 하나씩 (ReadWriteLock)
+public class UsernameNgramIndex {
+    private static final int GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[16];
+    private String[] usernames = new String[16];
+    private int slotCount;
+    private final BitSet live = new BitSet();
+    private final BitSet free = new BitSet();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    private final NavigableMap<String, BitSet> byUsername = new TreeMap<>();
+    private final Map<Long, BitSet> trigramPostings = new HashMap<>();
+
+    //username 이 null 인 회원은 어떤 검색에도 걸리지 않으므로 색인하지 않는다.
+    public void upsert(long memberId, String username) {
+        lock.writeLock().lock();
+        try {
+            remove0(memberId);
+            if (username == null) {
+                return;
+            }
+            int slot = allocate();
+            slotById.put(memberId, slot);
+            ids[slot] = memberId;
+            usernames[slot] = username;
+            live.set(slot);
+            byUsername.computeIfAbsent(username, key -> new BitSet()).set(slot);
+            for (long gram : trigrams(username)) {
+                trigramPostings.computeIfAbsent(gram, key -> new BitSet()).set(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long memberId) {
+        lock.writeLock().lock();
+        try {
+            remove0(memberId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //prefix 로 시작하고 contains 를 포함하는 회원 id (member.id 순). null, "" 은 조건 없음
+    //후보가 maxCandidates 건보다 많으면 null - id 목록으로 거르는 것보다 DB 에서 like 로 거르는 편이 낫다.
+    public List<Long> find(String prefix, String contains, int maxCandidates) {
+        lock.readLock().lock();
+        try {
+            BitSet matched = (BitSet) live.clone();
+            if (!isEmpty(prefix)) {
+                matched.and(startingWith(prefix));
+            }
+            if (!isEmpty(contains)) {
+                matched.and(containing(contains, matched));
+            }
+            if (matched.cardinality() > maxCandidates) {
+                return null;
+            }
+            long[] found = new long[matched.cardinality()];
+            int i = 0;
+            for (int slot = matched.nextSetBit(0); slot >= 0; slot = matched.nextSetBit(slot + 1)) {
+                found[i++] = ids[slot];
+            }
+            Arrays.sort(found);
+            List<Long> result = new ArrayList<>(found.length);
+            for (long id : found) {
+                result.add(id);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet startingWith(String prefix) {
+        BitSet slots = new BitSet();
+        for (BitSet posting : byUsername.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            slots.or(posting);
+        }
+        return slots;
+    }
+
+    //within - 지금까지 걸러진 슬롯. 이 안에서만 실제 포함 여부를 확인한다.
+    private BitSet containing(String contains, BitSet within) {
+        BitSet slots = (BitSet) within.clone();
+        if (contains.length() >= GRAM) {
+            for (long gram : trigrams(contains)) {
+                BitSet posting = trigramPostings.get(gram);
+                if (posting == null) {
+                    return new BitSet();
+                }
+                slots.and(posting);
+            }
+        }
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            if (!usernames[slot].contains(contains)) {
+                slots.clear(slot);
+            }
+        }
+        return slots;
+    }
+
+    private void remove0(long memberId) {
+        Integer slot = slotById.remove(memberId);
+        if (slot == null) {
+            return;
+        }
+        String username = usernames[slot];
+        BitSet posting = byUsername.get(username);
+        posting.clear(slot);
+        if (posting.isEmpty()) {
+            byUsername.remove(username);
+        }
+        for (long gram : trigrams(username)) {
+            BitSet gramPosting = trigramPostings.get(gram);
+            gramPosting.clear(slot);
+            if (gramPosting.isEmpty()) {
+                trigramPostings.remove(gram);
+            }
+        }
+        usernames[slot] = null;
+        live.clear(slot);
+        free.set(slot);
+    }
+
+    private int allocate() {
+        int slot = free.nextSetBit(0);
+        if (slot >= 0) {
+            free.clear(slot);
+            return slot;
+        }
+        if (slotCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            usernames = Arrays.copyOf(usernames, capacity);
+        }
+        return slotCount++;
+    }
+
+    //세 글자(char 16bit * 3)를 long 하나로 묶는다. 중복은 한 번만
+    private static long[] trigrams(String value) {
+        if (value.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[value.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = (long) value.charAt(i) << 32 | (long) value.charAt(i + 1) << 16 | value.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+}
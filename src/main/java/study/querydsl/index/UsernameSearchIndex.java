@@ -0,0 +1,66 @@
+package study.querydsl.index;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * username prefix/contains 검색 인덱스 (member.username-index.enabled)
+ */
+//usernamePrefix, usernameContains 조건을 UsernameNgramIndex 에서 회원 id 목록으로 바꾼다.
+//MemberQueryTemplates 가 그 id 목록을 member.id in (...) 으로 넣어서 나머지 조건, DTO 조회는 그대로 DB 에서 한다.
+//만들어지고 유지되는 방식은 MemberEventProjection 참고 - 준비되기 전에는 DB 에서 like 로 거른다.
+@Component
+public class UsernameSearchIndex extends MemberEventProjection<UsernameNgramIndex> {
+    private final int maxCandidates;
+
+    public UsernameSearchIndex(@Value("${member.username-index.enabled:false}") boolean enabled,
+                               @Value("${member.username-index.max-candidates:1000}") int maxCandidates,
+                               JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+        super("member-username-index", enabled, queryFactory, transactionManager);
+        this.maxCandidates = maxCandidates;
+    }
+
+    //인덱스로 처리할 수 없으면 empty -> like 로 조회한다.
+    //- 준비되지 않았거나, 쓰기 트랜잭션 안이거나(커밋되지 않은 자기 변경이 인덱스에 없다), 후보가 maxCandidates 건보다 많을 때
+    public Optional<List<Long>> candidateIds(String prefix, String contains) {
+        UsernameNgramIndex current = view();
+        if (current == null
+                || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current.find(prefix, contains, maxCandidates));
+    }
+
+    @Override
+    protected UsernameNgramIndex newView() {
+        return new UsernameNgramIndex();
+    }
+
+    @Override
+    protected void upsert(UsernameNgramIndex view, long memberId, String username, int age, Long teamId, String teamName) {
+        view.upsert(memberId, username);
+    }
+
+    @Override
+    protected void remove(UsernameNgramIndex view, long memberId) {
+        view.remove(memberId);
+    }
+
+    //username 만 쓰므로 전체 로드에서 team 조인을 하지 않고, 변경 이벤트에서도 팀 이름을 조회하지 않는다.
+    @Override
+    protected boolean usesTeamName() {
+        return false;
+    }
+
+    @Override
+    protected boolean containsTeam(UsernameNgramIndex view, long teamId) {
+        return true; //usesTeamName() 이 false 라 쓰이지 않는다.
+    }
+}
@@ -0,0 +1,113 @@
+package study.querydsl.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.Dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import static org.springframework.util.ObjectUtils.isEmpty;
+
+/**
+ * 회원 검색 쿼리 지표
+ */
+//리포지토리 메소드 + 검색 조건 모양(username, teamName, ageGoe, ageLoe, usernamePrefix, usernameContains 가 있는지)별로
+//- member.query            : 응답 시간 히스토그램 (Timer)
+//- member.query.rows       : 조회한 row 수
+//- member.query.statements : 실행한 SQL 수 (StatementCounter)
+//를 기록한다. /actuator/metrics, /actuator/prometheus 로 확인한다.
+//상시 켜 둘 수 있도록 meter 는 (메소드, 모양)별로 한 번만 만들어 두고 호출마다 문자열/태그를 만들지 않는다.
+//다른 쓰레드에서 실행된 SQL(searchPageConcurrent 의 count 쿼리)은 statements 에 포함되지 않는다.
+@Component
+public class MemberQueryMetrics {
+    private static final int SHAPES = 1 << 6;
+
+    private final MeterRegistry registry;
+    private final StatementCounter statementCounter;
+    private final boolean enabled;
+    private final Map<String, Meters[]> meters = new ConcurrentHashMap<>();
+
+    public MemberQueryMetrics(MeterRegistry registry, StatementCounter statementCounter,
+                              @Value("${monitoring.query-metrics.enabled:true}") boolean enabled) {
+        this.registry = registry;
+        this.statementCounter = statementCounter;
+        this.enabled = enabled;
+    }
+
+    public <T> T record(String method, MemberSearchCondition condition, Supplier<T> query, ToIntFunction<T> rowCount) {
+        if (!enabled) {
+            return query.get();
+        }
+        Meters m = meters(method, shapeOf(condition));
+        long start = System.nanoTime();
+        try (StatementScope scope = statementCounter.open()) {
+            T result = query.get();
+            m.rows.record(rowCount.applyAsInt(result));
+            m.statements.record(scope.getTotal());
+            return result;
+        } finally {
+            m.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    //같은 meter 를 두 번 등록해도 registry 가 같은 인스턴스를 돌려주므로 동시에 만들어져도 문제없다.
+    private Meters meters(String method, int shape) {
+        Meters[] byShape = meters.computeIfAbsent(method, key -> new Meters[SHAPES]);
+        Meters m = byShape[shape];
+        if (m == null) {
+            m = new Meters(registry, method, shape);
+            byShape[shape] = m;
+        }
+        return m;
+    }
+
+    //MemberQueryTemplates 와 같은 기준 (null, "" 은 조건 없음)
+    private static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (!isEmpty(condition.getUsername())) shape |= 1;
+        if (!isEmpty(condition.getTeamName())) shape |= 1 << 1;
+        if (condition.getAgeGoe() != null) shape |= 1 << 2;
+        if (condition.getAgeLoe() != null) shape |= 1 << 3;
+        if (!isEmpty(condition.getUsernamePrefix())) shape |= 1 << 4;
+        if (!isEmpty(condition.getUsernameContains())) shape |= 1 << 5;
+        return shape;
+    }
+
+    private static class Meters {
+        private final Timer latency;
+        private final DistributionSummary rows;
+        private final DistributionSummary statements;
+
+        Meters(MeterRegistry registry, String method, int shape) {
+            Tags tags = Tags.of(
+                    "method", method,
+                    "username", String.valueOf((shape & 1) != 0),
+                    "teamName", String.valueOf((shape & 1 << 1) != 0),
+                    "ageGoe", String.valueOf((shape & 1 << 2) != 0),
+                    "ageLoe", String.valueOf((shape & 1 << 3) != 0),
+                    "usernamePrefix", String.valueOf((shape & 1 << 4) != 0),
+                    "usernameContains", String.valueOf((shape & 1 << 5) != 0));
+            this.latency = Timer.builder("member.query")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+            this.rows = DistributionSummary.builder("member.query.rows")
+                    .tags(tags)
+                    .register(registry);
+            this.statements = DistributionSummary.builder("member.query.statements")
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package study.querydsl.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 느린 쿼리 로그
+ */
+//모든 SQL 을 로그로 남기는(p6spy 로그, org.hibernate.SQL debug, org.hibernate.type trace) 대신
+//threshold 보다 오래 걸린 SQL 과 나머지 중 sample-rate 비율만 남긴다.
+//- 로그에는 JPQL(use_sql_comments 로 SQL 앞에 붙는 주석), 실행한 SQL, 파라미터가 채워진 SQL 이 들어간다.
+//- 요청 쓰레드는 크기가 정해진 버퍼에 넣기만 하고(꽉 차면 가장 오래된 것을 버린다.) 로그는 별도 쓰레드가 쓴다.
+@Slf4j
+@Component
+public class SlowQueryLog extends JdbcEventListener {
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final BlockingQueue<Entry> buffer;
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread writer;
+
+    public SlowQueryLog(@Value("${monitoring.slow-query.enabled:true}") boolean enabled,
+                        @Value("${monitoring.slow-query.threshold:200ms}") Duration threshold,
+                        @Value("${monitoring.slow-query.sample-rate:0}") double sampleRate,
+                        @Value("${monitoring.slow-query.buffer-size:1024}") int bufferSize) {
+        this.enabled = enabled;
+        this.thresholdNanos = threshold.toNanos();
+        this.sampleRate = sampleRate;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        writer = new Thread(this::drain, "slow-query-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (!enabled) {
+            return;
+        }
+        boolean slow = timeElapsedNanos >= thresholdNanos;
+        if (!slow && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        Entry entry = new Entry(slow, timeElapsedNanos, statementInformation.getSql(),
+                statementInformation.getSqlWithValues(), e);
+        while (!buffer.offer(entry)) {
+            if (buffer.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    //버퍼가 꽉 차서 버린 로그 수
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                write(buffer.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Entry entry) {
+        String[] sql = splitComment(entry.sql);
+        String[] sqlWithValues = splitComment(entry.sqlWithValues);
+        long millis = TimeUnit.NANOSECONDS.toMillis(entry.elapsedNanos);
+        if (entry.slow) {
+            log.warn("slow query {}ms\n  jpql: {}\n  sql: {}\n  values: {}", millis, sql[0], sql[1], sqlWithValues[1], entry.error);
+        } else {
+            log.info("sampled query {}ms\n  jpql: {}\n  sql: {}\n  values: {}", millis, sql[0], sql[1], sqlWithValues[1], entry.error);
+        }
+    }
+
+    //"/* JPQL */ SQL" -> {JPQL, SQL} (주석이 없으면 JPQL 은 null)
+    private static String[] splitComment(String sql) {
+        if (sql == null || !sql.startsWith("/*")) {
+            return new String[]{null, sql};
+        }
+        int end = sql.indexOf("*/");
+        if (end < 0) {
+            return new String[]{null, sql};
+        }
+        return new String[]{sql.substring(2, end).trim(), sql.substring(end + 2).trim()};
+    }
+
+    private static class Entry {
+        private final boolean slow;
+        private final long elapsedNanos;
+        private final String sql;
+        private final String sqlWithValues;
+        private final SQLException error;
+
+        Entry(boolean slow, long elapsedNanos, String sql, String sqlWithValues, SQLException error) {
+            this.slow = slow;
+            this.elapsedNanos = elapsedNanos;
+            this.sql = sql;
+            this.sqlWithValues = sqlWithValues;
+            this.error = error;
+        }
+    }
+}
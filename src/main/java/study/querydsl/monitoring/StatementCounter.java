@@ -0,0 +1,83 @@
+package study.querydsl.monitoring;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * N+1 감지기
+ */
+//p6spy 가 모든 JDBC 실행을 알려주므로(JdbcEventListener 빈은 p6spy 에 자동 등록된다.) 쓰레드별로 실행된 SQL 을 센다.
+//- 런타임: 트랜잭션마다 자동으로 범위를 열고, 트랜잭션이 끝날 때 같은 SQL 이 threshold 번 이상 반복되었으면 경고 로그를 남긴다.
+//- 테스트: try (StatementScope scope = statementCounter.open()) { ... } 로 원하는 구간의 실행 횟수를 확인한다.
+@Slf4j
+@Component
+public class StatementCounter extends JdbcEventListener {
+    private final ThreadLocal<List<StatementScope>> scopes = ThreadLocal.withInitial(ArrayList::new);
+    private final int threshold;
+
+    public StatementCounter(@Value("${monitoring.n-plus-one.threshold:3}") int threshold) {
+        this.threshold = threshold;
+    }
+
+    public StatementScope open() {
+        StatementScope scope = new StatementScope(this);
+        scopes.get().add(scope);
+        return scope;
+    }
+
+    void close(StatementScope scope) {
+        List<StatementScope> active = scopes.get();
+        active.remove(scope);
+        if (active.isEmpty()) {
+            scopes.remove();
+        }
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        openTransactionScope();
+        List<StatementScope> active = scopes.get();
+        if (active.isEmpty()) {
+            scopes.remove();
+            return;
+        }
+        String sql = statementInformation.getSql();
+        for (StatementScope scope : active) {
+            scope.record(sql);
+        }
+    }
+
+    //트랜잭션 안에서 처음 실행된 SQL 이면 그 트랜잭션용 범위를 열고, 끝날 때 검사하도록 등록한다.
+    private void openTransactionScope() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        StatementScope scope = open();
+        TransactionSynchronizationManager.bindResource(this, scope);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(StatementCounter.this);
+                scope.close();
+                report(scope);
+            }
+        });
+    }
+
+    private void report(StatementScope scope) {
+        Map<String, Integer> repeated = scope.repeatedStatements(threshold);
+        repeated.forEach((sql, count) ->
+                log.warn("N+1 의심: 한 트랜잭션에서 같은 SQL 이 {}번 실행되었습니다. (전체 {}번) sql={}", count, scope.getTotal(), sql));
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//한 범위(트랜잭션 또는 StatementCounter.open() ~ close())에서 실행된 SQL 통계
+//같은 SQL(파라미터 자리는 ?)이 여러 번 실행되었다면 N+1 을 의심할 수 있다.
+public class StatementScope implements AutoCloseable {
+    private final StatementCounter counter;
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+    private int total;
+
+    StatementScope(StatementCounter counter) {
+        this.counter = counter;
+    }
+
+    void record(String sql) {
+        total++;
+        counts.merge(sql, 1, Integer::sum);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    //가장 많이 반복된 SQL 의 실행 횟수
+    public int getMaxRepeats() {
+        int max = 0;
+        for (int count : counts.values()) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    //threshold 번 이상 반복된 SQL -> 실행 횟수
+    public Map<String, Integer> repeatedStatements(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        counts.forEach((sql, count) -> {
+            if (count >= threshold) {
+                repeated.put(sql, count);
+            }
+        });
+        return repeated;
+    }
+
+    @Override
+    public void close() {
+        counter.close(this);
+    }
+}
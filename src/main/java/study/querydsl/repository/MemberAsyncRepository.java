@@ -0,0 +1,115 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.Dto.MemberKeysetPage;
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.Dto.MemberTeamDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepositoryCustom 의 비동기 버전
+ */
+//웹 쓰레드가 JDBC 응답을 기다리지 않도록 조회를 전용 쓰레드풀(DB 쓰레드풀)에서 실행하고 CompletableFuture 로 돌려준다.
+//- 쓰레드 수, 대기열 크기가 정해져 있어서 포화되면 기다리지 않고 RejectedExecutionException 으로 실패한다.
+//- 메소드마다 동시에 실행/대기할 수 있는 수(bulkhead)를 따로 제한해서 느린 메소드 하나가 쓰레드풀을 다 차지하지 못하게 한다.
+//  bulkhead 가 쓰레드 수 이상이면 한 메소드가 쓰레드를 모두 잡을 수 있으므로 쓰레드 수보다 작아야 한다. (쓰레드가 1개면 1)
+//쓰레드 수는 커넥션 풀 크기보다 작게 잡는다. (searchPageConcurrent 의 count 쿼리도 커넥션을 하나 더 쓴다.)
+@Component
+public class MemberAsyncRepository implements DisposableBean {
+    private final MemberRepository memberRepository;
+    private final ThreadPoolExecutor executor;
+    private final int bulkheadSize;
+    private final Map<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+
+    public MemberAsyncRepository(MemberRepository memberRepository,
+                                 @Value("${member.async.threads:8}") int threads,
+                                 @Value("${member.async.queue-capacity:200}") int queueCapacity,
+                                 @Value("${member.async.bulkhead:4}") int bulkheadSize) {
+        if (bulkheadSize < 1 || (threads > 1 && bulkheadSize >= threads)) {
+            throw new IllegalArgumentException("bulkhead(" + bulkheadSize + ")는 1 이상, 쓰레드 수(" + threads + ")보다 작아야 합니다.");
+        }
+        this.memberRepository = memberRepository;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ParallelQueryExecutor.daemonThreads("member-db-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.bulkheadSize = bulkheadSize;
+    }
+
+    public CompletableFuture<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        return submit("search", () -> memberRepository.search(condition));
+    }
+
+    public CompletableFuture<Page<MemberTeamDto>> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return submit("searchPageSimple", () -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    public CompletableFuture<Page<MemberTeamDto>> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return submit("searchPageComplex", () -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    public CompletableFuture<Page<MemberTeamDto>> usePageableExecutionUtils(MemberSearchCondition condition, Pageable pageable) {
+        return submit("usePageableExecutionUtils", () -> memberRepository.usePageableExecutionUtils(condition, pageable));
+    }
+
+    public CompletableFuture<Page<MemberTeamDto>> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable) {
+        return submit("searchPageConcurrent", () -> memberRepository.searchPageConcurrent(condition, pageable));
+    }
+
+    public CompletableFuture<MemberKeysetPage> searchKeysetSimple(MemberSearchCondition condition, String continuationToken, Pageable pageable) {
+        return submit("searchKeysetSimple", () -> memberRepository.searchKeysetSimple(condition, continuationToken, pageable));
+    }
+
+    public CompletableFuture<MemberKeysetPage> searchKeysetComplex(MemberSearchCondition condition, String continuationToken, Pageable pageable) {
+        return submit("searchKeysetComplex", () -> memberRepository.searchKeysetComplex(condition, continuationToken, pageable));
+    }
+
+    //bulkhead 자리가 없거나 쓰레드풀 대기열이 꽉 찼으면 바로 실패한 future 를 돌려준다.
+    private <T> CompletableFuture<T> submit(String method, Supplier<T> query) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Semaphore bulkhead = bulkheads.computeIfAbsent(method, key -> new Semaphore(bulkheadSize));
+        if (!bulkhead.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException(method + " 동시 실행 수(" + bulkheadSize + ")를 넘었습니다."));
+            return future;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(query.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    //대기 중인 조회 수 (DB 쓰레드풀 대기열)
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
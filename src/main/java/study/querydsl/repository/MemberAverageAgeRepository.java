@@ -0,0 +1,99 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Dto.MemberAverageAgeDto;
+import study.querydsl.Dto.QMemberAverageAgeDto;
+import study.querydsl.entity.QMember;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.querydsl.jpa.JPAExpressions.select;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * select 절 스칼라 서브쿼리 재작성 (QuerydslBasicTest.selectSubQuery)
+ */
+//select 절에 평균 나이 서브쿼리를 넣으면 DB 에 따라 결과 row 마다 서브쿼리를 다시 실행한다. (상관 서브쿼리는 항상 그렇다.)
+//같은 결과를 집계 쿼리를 한 번만 실행해서 만든다.
+//- 전체 평균: 평균을 먼저 한 번 구하고 각 row 에 붙인다.
+//- 팀 평균: 팀별 group by 결과를 먼저 구하고 team id 로 각 row 에 붙인다.
+//  (JPQL 은 from 절 서브쿼리(derived table)를 지원하지 않으므로 조인 대신 애플리케이션에서 붙인다. 팀 수만큼만 메모리를 쓴다.)
+//*BySubquery 메소드는 비교(SubqueryRewriteBenchmark, 테스트)를 위한 원래 방식이다.
+@Repository
+@Transactional(readOnly = true)
+public class MemberAverageAgeRepository {
+    private static final QMember memberSub = new QMember("memberSub");
+
+    private final JPAQueryFactory queryFactory;
+
+    public MemberAverageAgeRepository(JPAQueryFactory queryFactory) {
+        this.queryFactory = queryFactory;
+    }
+
+    public List<MemberAverageAgeDto> findWithAverageAgeBySubquery() {
+        return queryFactory
+                .select(new QMemberAverageAgeDto(member.id, member.username, member.age,
+                        select(memberSub.age.avg()).from(memberSub)))
+                .from(member)
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    public List<MemberAverageAgeDto> findWithAverageAge() {
+        Double average = queryFactory
+                .select(member.age.avg())
+                .from(member)
+                .fetchOne();
+        List<Tuple> rows = queryFactory
+                .select(member.id, member.username, member.age)
+                .from(member)
+                .orderBy(member.id.asc())
+                .fetch();
+        List<MemberAverageAgeDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            result.add(new MemberAverageAgeDto(row.get(member.id), row.get(member.username), row.get(member.age), average));
+        }
+        return result;
+    }
+
+    public List<MemberAverageAgeDto> findWithTeamAverageAgeBySubquery() {
+        return queryFactory
+                .select(new QMemberAverageAgeDto(member.id, member.username, member.age,
+                        select(memberSub.age.avg()).from(memberSub).where(memberSub.team.id.eq(member.team.id))))
+                .from(member)
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    public List<MemberAverageAgeDto> findWithTeamAverageAge() {
+        Map<Long, Double> averageByTeam = new HashMap<>();
+        for (Tuple row : queryFactory
+                .select(member.team.id, member.age.avg())
+                .from(member)
+                .where(member.team.id.isNotNull())
+                .groupBy(member.team.id)
+                .fetch()) {
+            averageByTeam.put(row.get(member.team.id), row.get(member.age.avg()));
+        }
+        List<Tuple> rows = queryFactory
+                .select(member.id, member.username, member.age, team.id)
+                .from(member)
+                .leftJoin(member.team, team) //팀이 없는 회원도 포함
+                .orderBy(member.id.asc())
+                .fetch();
+        List<MemberAverageAgeDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long teamId = row.get(team.id);
+            result.add(new MemberAverageAgeDto(row.get(member.id), row.get(member.username), row.get(member.age),
+                    teamId == null ? null : averageByTeam.get(teamId)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,12 @@
+package study.querydsl.repository;
+
+import study.querydsl.Dto.MemberBulkResult;
+
+//청크 하나가 커밋될 때마다 호출된다. (지금까지의 누적 결과)
+@FunctionalInterface
+public interface MemberBulkProgressListener {
+    MemberBulkProgressListener NONE = progress -> {
+    };
+
+    void onProgress(MemberBulkResult progress);
+}
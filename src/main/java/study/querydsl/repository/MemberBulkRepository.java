@@ -0,0 +1,138 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.MemberBulkResult;
+import study.querydsl.entity.MemberBulkChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 청크 단위 벌크 연산
+ */
+//update/delete 쿼리 하나로 전체 테이블을 처리하면 그동안 락을 오래 잡고 undo 로그가 한꺼번에 쌓인다.
+//member.id 범위를 chunkSize 씩 나눠서 청크마다 짧은 트랜잭션으로 실행하고 커밋한다.
+//- 청크마다 영속성 컨텍스트를 비운다. Member 는 2차 캐시 대상이 아니고, 쿼리 캐시는 하이버네이트가 벌크 쿼리를 실행할 때
+//  member 테이블 기준으로 무효화한다.
+//- MemberBulkChangedEvent(count 캐시, 인메모리 인덱스 무효화)는 청크마다 보내지 않고 작업이 끝날 때 한 번만 보낸다.
+//  청크마다 보내면 구독하는 쪽이 작업 중에 전체 무효화/재구성을 청크 수만큼 반복한다. 바뀐 row 가 없으면 보내지 않는다.
+//  그래서 작업 도중에는 캐시에 이전 값이 보일 수 있다.
+//- 청크가 커밋될 때마다 MemberBulkProgressListener 로 진행 상황을 알려준다.
+//- 중간에 실패하면 실패한 청크만 롤백되고 이전 청크는 커밋된 상태로 예외가 던져진다. (같은 조건으로 다시 실행하면 된다.)
+//청크마다 커밋해야 하므로 트랜잭션 안에서 호출하면 IllegalStateException 이다.
+@Slf4j
+@Repository
+public class MemberBulkRepository {
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public MemberBulkRepository(EntityManager em, JPAQueryFactory queryFactory,
+                                ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.eventPublisher = eventPublisher;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    //MemberJpaRepository.bulkAddAge, bulkDeleteByAgeGt 의 청크 버전
+    public MemberBulkResult addAge(int amount, int chunkSize, MemberBulkProgressListener listener) {
+        return update("addAge", null, clause -> clause.set(member.age, member.age.add(amount)), chunkSize, listener);
+    }
+
+    public MemberBulkResult deleteByAgeGt(int age, int chunkSize, MemberBulkProgressListener listener) {
+        return delete("deleteByAgeGt", member.age.gt(age), chunkSize, listener);
+    }
+
+    //set 절은 setter 로 채운다. ex) clause -> clause.set(member.username, "비회원")
+    public MemberBulkResult update(String operation, Predicate where, Consumer<JPAUpdateClause> setter,
+                                   int chunkSize, MemberBulkProgressListener listener) {
+        return inChunks(operation, where, chunkSize, listener, (from, to) -> () -> {
+            JPAUpdateClause clause = queryFactory.update(member);
+            setter.accept(clause);
+            return clause.where(where, member.id.between(from, to)).execute();
+        });
+    }
+
+    public MemberBulkResult delete(String operation, Predicate where, int chunkSize, MemberBulkProgressListener listener) {
+        return inChunks(operation, where, chunkSize, listener, (from, to) -> () -> queryFactory
+                .delete(member)
+                .where(where, member.id.between(from, to))
+                .execute());
+    }
+
+    private MemberBulkResult inChunks(String operation, Predicate where, int chunkSize,
+                                      MemberBulkProgressListener listener, ChunkStatement statement) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize 는 1 이상이어야 합니다.");
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("청크마다 커밋해야 하므로 트랜잭션 밖에서 호출해야 합니다. operation=" + operation);
+        }
+        long start = System.nanoTime();
+        Tuple range = readOnlyTransaction.execute(status -> queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .where(where)
+                .fetchOne());
+        Long minId = range == null ? null : range.get(member.id.min());
+        Long maxId = range == null ? null : range.get(member.id.max());
+        if (minId == null || maxId == null) {
+            MemberBulkResult empty = new MemberBulkResult(operation, 0, 0, 0, elapsedMillis(start));
+            listener.onProgress(empty);
+            return empty;
+        }
+
+        int totalChunks = Math.toIntExact((maxId - minId) / chunkSize + 1);
+        long affected = 0;
+        MemberBulkResult progress = null;
+        try {
+            for (int chunk = 0; chunk < totalChunks; chunk++) {
+                long from = minId + (long) chunk * chunkSize;
+                long to = Math.min(from + chunkSize - 1, maxId);
+                LongSupplier execute = statement.between(from, to);
+                Long count = chunkTransaction.execute(status -> {
+                    long rows = execute.getAsLong();
+                    em.clear(); //영속성 컨텍스트에 남아 있는 예전 상태를 버린다.
+                    return rows;
+                });
+                affected += count;
+                progress = new MemberBulkResult(operation, chunk + 1, totalChunks, affected, elapsedMillis(start));
+                listener.onProgress(progress);
+            }
+        } finally {
+            if (affected > 0) { //중간에 실패해도 이미 커밋된 청크가 있으면 알린다.
+                eventPublisher.publishEvent(new MemberBulkChangedEvent(operation, affected));
+            }
+        }
+        log.info("bulk {} affected {} rows in {} chunks ({}ms)", operation, affected, totalChunks, progress.getElapsedMillis());
+        return progress;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    //[from, to] id 범위에 대한 update/delete 쿼리
+    private interface ChunkStatement {
+        LongSupplier between(long from, long to);
+    }
+}
@@ -0,0 +1,163 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.entity.MemberBulkChangedEvent;
+import study.querydsl.entity.MemberChangedEvent;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.springframework.util.ObjectUtils.isEmpty;
+
+/**
+ * 페이징 검색의 전체 카운트 캐시
+ */
+//count 쿼리는 조건에 맞는 row 를 전부 세야 해서 content 쿼리(한 페이지)보다 비싼 경우가 많아서
+//검색 조건별로 카운트를 TTL 동안 재사용한다. 최대 maxSize 개까지 LRU 로 유지한다.
+//Member 저장/수정/삭제(MemberEntityListener), 벌크 연산(MemberBulkChangedEvent)이 일어나면 전부 무효화한다.
+@Component
+public class MemberCountCache {
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Map<MemberSearchCondition, Entry> entries;
+
+    //무효화 세대. count 쿼리 도중에 무효화가 일어났다면 그 결과는 캐시에 넣지 않는다.
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public MemberCountCache(@Value("${member.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${member.count-cache.max-size:1000}") int maxSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<MemberSearchCondition, Entry>(16, 0.75f, true) { //access-order -> LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MemberSearchCondition, Entry> eldest) {
+                return size() > MemberCountCache.this.maxSize;
+            }
+        };
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier countQuery) {
+        if (!cacheable()) {
+            return countQuery.getAsLong(); //쓰기 트랜잭션은 자기 변경이 반영된 카운트를 봐야 하므로 캐시를 거치지 않는다.
+        }
+        MemberSearchCondition key = normalize(condition);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.createdAt < ttlNanos) {
+                hits.incrementAndGet();
+                return entry.count;
+            }
+        }
+        misses.incrementAndGet();
+        long startGeneration = generation.get();
+        long count = countQuery.getAsLong();
+        if (startGeneration == generation.get()) {
+            synchronized (entries) {
+                entries.put(key, new Entry(count, now));
+            }
+            puts.incrementAndGet();
+        }
+        return count;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+        invalidations.incrementAndGet();
+    }
+
+    //변경이 일어난 즉시 한 번, 트랜잭션이 끝난 뒤(커밋/롤백) 한 번 더 비운다.
+    //커밋 전에 다른 트랜잭션이 예전 카운트를 다시 채워 넣었을 수 있기 때문이다.
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void afterMemberChanged(MemberChangedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onMemberBulkChanged(MemberBulkChangedEvent event) {
+        invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void afterMemberBulkChanged(MemberBulkChangedEvent event) {
+        invalidateAll();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getPutCount() {
+        return puts.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    //쓰기 트랜잭션 안에서 구한 카운트에는 아직 커밋되지 않은 변경이 섞여 있을 수 있으므로 캐시하지 않고,
+    //반대로 캐시된 카운트에는 그 트랜잭션의 변경이 빠져 있으므로 꺼내 쓰지도 않는다.
+    private boolean cacheable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    //null 과 "" 은 조건이 없는 것으로 똑같이 취급한다. (usernameEq, teamNameEq 와 같은 기준)
+    private MemberSearchCondition normalize(MemberSearchCondition condition) {
+        MemberSearchCondition key = new MemberSearchCondition();
+        key.setUsername(isEmpty(condition.getUsername()) ? null : condition.getUsername());
+        key.setTeamName(isEmpty(condition.getTeamName()) ? null : condition.getTeamName());
+        key.setAgeGoe(condition.getAgeGoe());
+        key.setAgeLoe(condition.getAgeLoe());
+        key.setUsernamePrefix(isEmpty(condition.getUsernamePrefix()) ? null : condition.getUsernamePrefix());
+        key.setUsernameContains(isEmpty(condition.getUsernameContains()) ? null : condition.getUsernameContains());
+        return key;
+    }
+
+    private static class Entry {
+        private final long count;
+        private final long createdAt;
+
+        Entry(long count, long createdAt) {
+            this.count = count;
+            this.createdAt = createdAt;
+        }
+    }
+}
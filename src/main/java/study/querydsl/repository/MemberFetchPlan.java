@@ -0,0 +1,17 @@
+package study.querydsl.repository;
+
+/**
+ * Member 엔티티 조회 시 LAZY 인 team 을 어떻게 가져올지
+ */
+//LAZY 그대로 두고 getTeam().getName() 을 호출하면 회원 수만큼 team 조회 쿼리가 나간다. (N+1, QuerydslBasicTest.fetchJoinNo)
+public enum MemberFetchPlan {
+    //team 을 가져오지 않는다. (team 을 쓰지 않는 경우)
+    LAZY,
+    //left join fetch 로 한 번에 가져온다.
+    FETCH_JOIN,
+    //엔티티 그래프(Member.WITH_TEAM) 힌트로 한 번에 가져온다. JPQL 은 LAZY 와 같다.
+    ENTITY_GRAPH,
+    //회원을 먼저 조회하고, 초기화되지 않은 team 들을 id 로 모아서 in 쿼리로 한 번에 가져온다.
+    //회원 수가 많거나 페이징이 필요해서 fetch join 을 쓰기 어려운 경우에 쓴다.
+    BATCH
+}
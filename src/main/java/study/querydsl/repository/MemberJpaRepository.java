@@ -1,21 +1,36 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.Dto.MemberSearchCondition;
 import study.querydsl.Dto.MemberTeamDto;
 import study.querydsl.Dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberBulkChangedEvent;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.index.MemberSearchIndex;
+import study.querydsl.monitoring.MemberQueryMetrics;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.util.ObjectUtils.isEmpty;
 import static study.querydsl.entity.QMember.*;
@@ -24,8 +39,13 @@ import static study.querydsl.entity.QTeam.*;
 
 @Repository
 public class MemberJpaRepository {
+    private static final int IN_CHUNK_SIZE = 500; //findAllByIds 의 in 절 하나에 넣는 id 수
     private final EntityManager em;  //순수 JPA이기 떄문에 (JPA에 접근할 때) em이 필요하다.
     private final JPAQueryFactory queryFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MemberQueryTemplates queryTemplates;
+    private final MemberQueryMetrics metrics;
+    private final MemberSearchIndex searchIndex;
 
 //    public MemberJpaRepository(EntityManager em) {
 //        this.em = em;
@@ -33,9 +53,15 @@ public class MemberJpaRepository {
 //    }
 
     //JPQqueryFactory를 빈으로 등록했기 때문에 이렇게 사용해도 된다. 물론 @RequiredArg 를 선언해주면 이 생성자도 생략 가능하다.
-    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory, ApplicationEventPublisher eventPublisher,
+                               MemberQueryTemplates queryTemplates, MemberQueryMetrics metrics,
+                               MemberSearchIndex searchIndex) {
         this.em = em;
         this.queryFactory = queryFactory;
+        this.eventPublisher = eventPublisher;
+        this.queryTemplates = queryTemplates;
+        this.metrics = metrics;
+        this.searchIndex = searchIndex;
     }
 
     public void save(Member member) {
@@ -47,11 +73,52 @@ public class MemberJpaRepository {
         return Optional.ofNullable(findMember);
     }
 
+    //여러 건을 한 번에 조회 - findById 를 반복하면 id 마다 쿼리가 나간다.
+    //영속성 컨텍스트에 이미 있는 회원은 쿼리 없이 꺼내고 나머지만 IN_CHUNK_SIZE 개씩 in 쿼리로 조회한다.
+    //(in_clause_parameter_padding 으로 in 절 크기가 2의 거듭제곱으로 맞춰진다.)
+    //Member 는 2차 캐시 대상이 아니다. (벌크 연산, JDBC 가져오기처럼 엔티티를 거치지 않는 변경이 많다.)
+    //결과는 ids 순서대로이고, 없는 id 는 빠진다.
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+
+        Map<Long, Member> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (id == null) {
+                continue;
+            }
+            Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+            if (managed != null) {
+                found.put(id, (Member) managed);
+            } else {
+                misses.add(id);
+            }
+        }
+        for (int from = 0; from < misses.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = misses.subList(from, Math.min(from + IN_CHUNK_SIZE, misses.size()));
+            for (Member loaded : queryFactory.selectFrom(member).where(member.id.in(chunk)).fetch()) {
+                found.put(loaded.getId(), loaded);
+            }
+        }
+
+        List<Member> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Member m = found.get(id);
+            if (m != null) {
+                result.add(m);
+            }
+        }
+        return result;
+    }
+
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
     //Querydsl로 구현 -> 자바코드로 작성 가능
+    @Transactional(readOnly = true) //읽기 전용 트랜잭션 -> replica 로 라우팅 (ReplicaRoutingDataSource)
     public List<Member> findAll_Querydsl() {
         return queryFactory
                 .selectFrom(member)
@@ -108,8 +175,25 @@ public class MemberJpaRepository {
     //동적 쿼리와 성능 최적화 조회 - Where절 파라미터 사용
     //Where절에 파라미터를 사용한 예제
     //Where절 방식이 매우 깔끔하고 권장하는 방식이다.
+    //where 파라미터로 조립한 쿼리는 검색 조건 모양별로 JPQL 이 정해져 있으므로
+    //MemberQueryTemplates 가 모양별로 한 번만 직렬화해두고 파라미터만 바인딩한다.
+    //(조립 방식은 MemberQueryTemplates.build() 참고 - 아래 usernameEq 등과 같은 조건)
+    //인메모리 인덱스(member.search-index.enabled)가 준비되어 있으면 SQL 없이 인덱스에서 꺼낸다.
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        return metrics.record("MemberJpaRepository.search", condition,
+                () -> searchIndex.search(condition).orElseGet(() -> queryTemplates.findDtos(condition, null, null)),
+                List::size);
+    }
+
+    //대용량 조회 - search()와 같은 조건이지만 fetch()로 전체 List를 만들지 않고 한 건씩 넘겨준다.
+    //iterate()는 하이버네이트의 ScrollableResults(FORWARD_ONLY, JDBC 커서)를 사용하고 fetchSize 만큼씩 DB에서 가져온다.
+    //DTO로 바로 조회하므로 영속성 컨텍스트에 엔티티가 쌓이지 않는다. -> 결과 크기와 상관없이 메모리 사용량이 일정하다.
+    //커서는 커넥션이 열려있는 동안만 유효하므로 트랜잭션 안에서 끝까지 소비해야 한다.
+    @Transactional(readOnly = true)
+    public long searchStream(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> action) {
+        long count = 0;
+        try (CloseableIterator<MemberTeamDto> iterator = queryFactory
                 .select(new QMemberTeamDto(
                         member.id,
                         member.username,
@@ -121,9 +205,20 @@ public class MemberJpaRepository {
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+                        ageLoe(condition.getAgeLoe()),
+                        usernameStartsWith(condition.getUsernamePrefix()),
+                        usernameContains(condition.getUsernameContains()))
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .iterate()) {
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
     }
+
     //BooleanExpression을 사용하면 나중에 조립할 수 있어서 좋다.
     //그리고 메소드이기때문에 당연히 재사용도 가능
     private BooleanExpression usernameEq(String username) {
@@ -138,17 +233,49 @@ public class MemberJpaRepository {
     private BooleanExpression ageLoe(Integer ageLoe) {
         return ageLoe == null ? null : member.age.loe(ageLoe);
     }
+    //startsWith, contains 는 like 로 바뀌고 검색어의 %, _ 는 querydsl 이 이스케이프한다.
+    private BooleanExpression usernameStartsWith(String prefix) {
+        return isEmpty(prefix) ? null : member.username.startsWith(prefix);
+    }
+    private BooleanExpression usernameContains(String contains) {
+        return isEmpty(contains) ? null : member.username.contains(contains);
+    }
 
     //where 파라미터 방식은 이런식으로 재사용이 가능하다.
+    @Transactional(readOnly = true)
     public List<Member> findMember(MemberSearchCondition condition) {
-        return queryFactory
-                .selectFrom(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        return findMember(condition, MemberFetchPlan.LAZY);
+    }
+
+    //호출하는 쪽에서 team 을 쓸 예정이라면 fetch plan 을 골라서 N+1 을 피한다. (MemberFetchPlan 참고)
+    @Transactional(readOnly = true)
+    public List<Member> findMember(MemberSearchCondition condition, MemberFetchPlan fetchPlan) {
+        return metrics.record("MemberJpaRepository.findMember", condition,
+                () -> queryTemplates.findMembers(condition, fetchPlan), List::size);
+    }
+
+    //벌크 연산 - 영속성 컨텍스트와 엔티티 리스너를 거치지 않으므로
+    //실행 후 영속성 컨텍스트를 비우고, 카운트 캐시 등이 무효화되도록 이벤트를 직접 발행한다.
+    @Transactional
+    public long bulkAddAge(int amount) {
+        long count = queryFactory
+                .update(member)
+                .set(member.age, member.age.add(amount))
+                .execute();
+        em.clear();
+        eventPublisher.publishEvent(new MemberBulkChangedEvent("bulkAddAge", count));
+        return count;
+    }
+
+    @Transactional
+    public long bulkDeleteByAgeGt(int age) {
+        long count = queryFactory
+                .delete(member)
+                .where(member.age.gt(age))
+                .execute();
+        em.clear();
+        eventPublisher.publishEvent(new MemberBulkChangedEvent("bulkDeleteByAgeGt", count));
+        return count;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,324 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.stereotype.Component;
+import study.querydsl.Dto.MemberKeysetCursor;
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.Dto.MemberTeamDto;
+import study.querydsl.Dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.index.UsernameSearchIndex;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.util.ObjectUtils.isEmpty;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건 모양(shape)별 JPQL 템플릿 캐시
+ */
+//검색 조건(username, teamName, ageGoe, ageLoe, usernamePrefix, usernameContains)은 있거나 없거나 둘 중 하나라서 쿼리 모양의 수가 정해져 있다.
+//모양별로 Querydsl 로 쿼리를 한 번만 조립해서 JPQL 문자열로 만들어 두고, 이후에는 파라미터만 바인딩한다.
+//-> 요청마다 expression tree 를 만들고 JPQL 문자열로 직렬화하는 비용이 사라지고
+//   같은 모양은 항상 같은 JPQL 이므로 하이버네이트 쿼리 플랜 캐시도 항상 적중한다.
+//값 대신 이름 있는 파라미터(:username)를 템플릿으로 넣어서 조립하므로 바인딩 순서에 의존하지 않는다.
+//teamName 은 팀 id 목록(:teamIds)으로 바꿔서 바인딩한다. (목록 크기가 달라도 JPQL 은 같다.)
+//usernamePrefix, usernameContains 는 UsernameSearchIndex 가 준비되어 있으면 회원 id 목록(:usernameIds)으로,
+//아니면 like 로 거른다. 둘은 JPQL 이 다르므로 모양도 다르다. (USERNAME_IDS)
+@Component
+public class MemberQueryTemplates {
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+    private static final int USERNAME_PREFIX = 1 << 4;
+    private static final int USERNAME_CONTAINS = 1 << 5;
+    private static final int USERNAME_IDS = 1 << 6; //USERNAME_PREFIX, USERNAME_CONTAINS 를 인덱스의 id 목록으로 대신함
+    private static final int SHAPE_BITS = 7;
+
+    private static final char LIKE_ESCAPE = '!';
+
+    private static final QMemberTeamDto MEMBER_TEAM_DTO = new QMemberTeamDto(
+            member.id,
+            member.username,
+            member.age,
+            team.id,
+            team.name);
+
+    private enum Kind {DTO, KEYSET_FIRST, KEYSET_AFTER, ENTITY, ENTITY_FETCH_JOIN, COUNT}
+
+    //MemberFetchPlan.BATCH 에서 in 절 하나에 넣는 team id 수
+    private static final int TEAM_BATCH_SIZE = 100;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TeamJpaRepository teamJpaRepository;
+    private final UsernameSearchIndex usernameSearchIndex;
+    private final Map<Integer, String> templates = new ConcurrentHashMap<>();
+
+    public MemberQueryTemplates(EntityManager em, JPAQueryFactory queryFactory, TeamJpaRepository teamJpaRepository,
+                                UsernameSearchIndex usernameSearchIndex) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.teamJpaRepository = teamJpaRepository;
+        this.usernameSearchIndex = usernameSearchIndex;
+    }
+
+    //offset, limit 이 null 이면 페이징하지 않는다. (페이징은 JPQL 이 아니라 Query 에 설정하므로 템플릿은 그대로다.)
+    public List<MemberTeamDto> findDtos(MemberSearchCondition condition, Long offset, Integer limit) {
+        Resolved resolved = resolve(condition);
+        if (resolved == null) {
+            return new ArrayList<>();
+        }
+        Query query = em.createQuery(jpql(Kind.DTO, resolved.shape));
+        bind(query, resolved, condition);
+        if (offset != null) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        return toDtos(query.getResultList());
+    }
+
+    //키셋 페이징 - (age, id) 순으로 cursor 다음부터 limit 건 (cursor 가 null 이면 처음부터)
+    public List<MemberTeamDto> findDtosAfter(MemberSearchCondition condition, MemberKeysetCursor cursor, int limit) {
+        Resolved resolved = resolve(condition);
+        if (resolved == null) {
+            return new ArrayList<>();
+        }
+        Query query = em.createQuery(jpql(cursor == null ? Kind.KEYSET_FIRST : Kind.KEYSET_AFTER, resolved.shape));
+        bind(query, resolved, condition);
+        if (cursor != null) {
+            query.setParameter("cursorAge", cursor.getAge());
+            query.setParameter("cursorId", cursor.getMemberId());
+        }
+        query.setMaxResults(limit);
+        return toDtos(query.getResultList());
+    }
+
+    public List<Member> findMembers(MemberSearchCondition condition, MemberFetchPlan fetchPlan) {
+        Resolved resolved = resolve(condition);
+        if (resolved == null) {
+            return new ArrayList<>();
+        }
+        Kind kind = fetchPlan == MemberFetchPlan.FETCH_JOIN ? Kind.ENTITY_FETCH_JOIN : Kind.ENTITY;
+        Query query = em.createQuery(jpql(kind, resolved.shape), Member.class);
+        bind(query, resolved, condition);
+        if (fetchPlan == MemberFetchPlan.ENTITY_GRAPH) {
+            query.setHint(QueryHints.HINT_FETCHGRAPH, em.getEntityGraph(Member.WITH_TEAM));
+        }
+        @SuppressWarnings("unchecked")
+        List<Member> result = query.getResultList();
+        if (fetchPlan == MemberFetchPlan.BATCH) {
+            loadTeams(result);
+        }
+        return result;
+    }
+
+    public long count(MemberSearchCondition condition) {
+        Resolved resolved = resolve(condition);
+        if (resolved == null) {
+            return 0;
+        }
+        Query query = em.createQuery(jpql(Kind.COUNT, resolved.shape), Long.class);
+        bind(query, resolved, condition);
+        return (Long) query.getSingleResult();
+    }
+
+    //지금까지 만들어진 템플릿 수
+    public int size() {
+        return templates.size();
+    }
+
+    private String jpql(Kind kind, int shape) {
+        return templates.computeIfAbsent(kind.ordinal() << SHAPE_BITS | shape, key -> build(kind, shape));
+    }
+
+    private String build(Kind kind, int shape) {
+        Predicate[] where = {
+                has(shape, USERNAME) ? member.username.eq(Expressions.stringTemplate(":username")) : null,
+                has(shape, TEAM_NAME) ? Expressions.booleanTemplate("{0} in (:teamIds)", member.team.id) : null,
+                has(shape, AGE_GOE) ? member.age.goe(Expressions.numberTemplate(Integer.class, ":ageGoe")) : null,
+                has(shape, AGE_LOE) ? member.age.loe(Expressions.numberTemplate(Integer.class, ":ageLoe")) : null,
+                has(shape, USERNAME_PREFIX)
+                        ? member.username.like(Expressions.stringTemplate(":usernamePrefix"), LIKE_ESCAPE) : null,
+                has(shape, USERNAME_CONTAINS)
+                        ? member.username.like(Expressions.stringTemplate(":usernameContains"), LIKE_ESCAPE) : null,
+                has(shape, USERNAME_IDS) ? Expressions.booleanTemplate("{0} in (:usernameIds)", member.id) : null
+        };
+        switch (kind) {
+            case DTO:
+                return queryFactory
+                        .select(MEMBER_TEAM_DTO)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(where)
+                        .toString();
+            case KEYSET_FIRST:
+            case KEYSET_AFTER:
+                return queryFactory
+                        .select(MEMBER_TEAM_DTO)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(where)
+                        .where(kind == Kind.KEYSET_AFTER ? afterCursor() : null)
+                        .orderBy(member.age.asc(), member.id.asc()) //커서와 같은 (정렬 키, id) 순서로 정렬해야 한다.
+                        .toString();
+            case ENTITY:
+                return queryFactory //team 은 LAZY 이고 조건은 member.team_id 로 거르므로 조인하지 않는다.
+                        .selectFrom(member)
+                        .where(where)
+                        .toString();
+            case ENTITY_FETCH_JOIN:
+                return queryFactory
+                        .selectFrom(member)
+                        .leftJoin(member.team, team).fetchJoin()
+                        .where(where)
+                        .toString();
+            case COUNT:
+                //left join 은 row 수를 바꾸지 않고(ManyToOne) teamName 조건도 member.team_id 로 거르므로
+                //count 는 team 을 조인하지 않고 member 의 pk 만 센다.
+                return queryFactory
+                        .select(member.id.count())
+                        .from(member)
+                        .where(where)
+                        .toString();
+            default:
+                throw new IllegalArgumentException("unknown kind: " + kind);
+        }
+    }
+
+    //(age, id) > (:cursorAge, :cursorId)
+    private BooleanExpression afterCursor() {
+        return member.age.gt(Expressions.numberTemplate(Integer.class, ":cursorAge"))
+                .or(member.age.eq(Expressions.numberTemplate(Integer.class, ":cursorAge"))
+                        .and(member.id.gt(Expressions.numberTemplate(Long.class, ":cursorId"))));
+    }
+
+    //아직 초기화되지 않은 team 프록시의 id 를 모아서 TEAM_BATCH_SIZE 개씩 in 쿼리로 조회한다.
+    //조회된 Team 은 영속성 컨텍스트에 올라가므로 프록시를 초기화할 때 쿼리가 나가지 않는다.
+    //2차 캐시에 있는 팀은 캐시에서 초기화되므로 제외한다.
+    private void loadTeams(List<Member> members) {
+        Cache secondLevelCache = em.getEntityManagerFactory().getCache();
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Member m : members) {
+            Team t = m.getTeam();
+            if (t instanceof HibernateProxy && !Hibernate.isInitialized(t)) {
+                Long id = (Long) ((HibernateProxy) t).getHibernateLazyInitializer().getIdentifier();
+                if (!secondLevelCache.contains(Team.class, id)) {
+                    ids.add(id);
+                }
+            }
+        }
+        List<Long> pending = new ArrayList<>(ids);
+        for (int from = 0; from < pending.size(); from += TEAM_BATCH_SIZE) {
+            List<Long> chunk = pending.subList(from, Math.min(from + TEAM_BATCH_SIZE, pending.size()));
+            queryFactory
+                    .selectFrom(team)
+                    .where(team.id.in(chunk))
+                    .fetch();
+        }
+    }
+
+    //usernameEq, teamNameEq, ageGoe, ageLoe 와 같은 기준 (null, "" 은 조건 없음)
+    private int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (!isEmpty(condition.getUsername())) shape |= USERNAME;
+        if (!isEmpty(condition.getTeamName())) shape |= TEAM_NAME;
+        if (condition.getAgeGoe() != null) shape |= AGE_GOE;
+        if (condition.getAgeLoe() != null) shape |= AGE_LOE;
+        if (!isEmpty(condition.getUsernamePrefix())) shape |= USERNAME_PREFIX;
+        if (!isEmpty(condition.getUsernameContains())) shape |= USERNAME_CONTAINS;
+        return shape;
+    }
+
+    //조건 모양과 id 목록으로 바꾼 조건을 구한다. 어떤 회원도 조건에 맞을 수 없으면 null (쿼리 없이 빈 결과)
+    private Resolved resolve(MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        List<Long> teamIds = teamIds(shape, condition);
+        if (noSuchTeam(teamIds)) {
+            return null;
+        }
+        List<Long> usernameIds = null;
+        if (has(shape, USERNAME_PREFIX | USERNAME_CONTAINS)) {
+            usernameIds = usernameSearchIndex
+                    .candidateIds(condition.getUsernamePrefix(), condition.getUsernameContains())
+                    .orElse(null);
+            if (usernameIds != null) {
+                if (usernameIds.isEmpty()) {
+                    return null;
+                }
+                shape = shape & ~(USERNAME_PREFIX | USERNAME_CONTAINS) | USERNAME_IDS;
+            }
+        }
+        return new Resolved(shape, teamIds, usernameIds);
+    }
+
+    //teamName 조건은 2차 캐시(쿼리 캐시)에서 팀 id 로 바꿔서 member.team_id 컬럼으로 거른다.
+    //team 테이블을 조인해서 이름을 비교하지 않아도 되고, 팀 이름이 없는 경우는 쿼리 없이 바로 빈 결과다.
+    private List<Long> teamIds(int shape, MemberSearchCondition condition) {
+        return has(shape, TEAM_NAME) ? teamJpaRepository.findIdsByName(condition.getTeamName()) : null;
+    }
+
+    private static boolean noSuchTeam(List<Long> teamIds) {
+        return teamIds != null && teamIds.isEmpty();
+    }
+
+    private void bind(Query query, Resolved resolved, MemberSearchCondition condition) {
+        int shape = resolved.shape;
+        if (has(shape, USERNAME)) query.setParameter("username", condition.getUsername());
+        if (has(shape, TEAM_NAME)) query.setParameter("teamIds", resolved.teamIds);
+        if (has(shape, AGE_GOE)) query.setParameter("ageGoe", condition.getAgeGoe());
+        if (has(shape, AGE_LOE)) query.setParameter("ageLoe", condition.getAgeLoe());
+        if (has(shape, USERNAME_PREFIX)) query.setParameter("usernamePrefix", escapeLike(condition.getUsernamePrefix()) + "%");
+        if (has(shape, USERNAME_CONTAINS)) query.setParameter("usernameContains", "%" + escapeLike(condition.getUsernameContains()) + "%");
+        if (has(shape, USERNAME_IDS)) query.setParameter("usernameIds", resolved.usernameIds);
+    }
+
+    //검색어의 %, _ 는 와일드카드가 아니라 글자 그대로 찾는다.
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    //select 절이 QMemberTeamDto 의 인자 순서대로 직렬화되어 있으므로 Object[] 를 그대로 생성자에 넘긴다.
+    private List<MemberTeamDto> toDtos(List<?> rows) {
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(MEMBER_TEAM_DTO.newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    private static boolean has(int shape, int flag) {
+        return (shape & flag) != 0;
+    }
+
+    private static class Resolved {
+        private final int shape;
+        private final List<Long> teamIds;
+        private final List<Long> usernameIds;
+
+        Resolved(int shape, List<Long> teamIds, List<Long> usernameIds) {
+            this.shape = shape;
+            this.teamIds = teamIds;
+            this.usernameIds = usernameIds;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import study.querydsl.Dto.MemberKeysetPage;
 import study.querydsl.Dto.MemberSearchCondition;
 import study.querydsl.Dto.MemberTeamDto;
 
@@ -13,4 +14,11 @@ public interface MemberRepositoryCustom {
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
 
     Page<MemberTeamDto> usePageableExecutionUtils(MemberSearchCondition condition, Pageable pageable);
+    //content 쿼리와 count 쿼리를 서로 다른 커넥션에서 동시에 실행한다.
+    Page<MemberTeamDto> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable);
+
+    //키셋(seek) 페이징 - offset 대신 이전 페이지가 돌려준 continuation token(null 이면 첫 페이지)을 받는다.
+    //pageable 은 페이지 크기만 쓴다. 정렬은 (age, id) 오름차순 고정이고 다른 정렬이면 IllegalArgumentException
+    MemberKeysetPage searchKeysetSimple(MemberSearchCondition condition, String continuationToken, Pageable pageable);
+    MemberKeysetPage searchKeysetComplex(MemberSearchCondition condition, String continuationToken, Pageable pageable);
 }
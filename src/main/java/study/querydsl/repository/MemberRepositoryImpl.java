@@ -1,83 +1,61 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQuery;
-import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.Dto.MemberKeysetCursor;
+import study.querydsl.Dto.MemberKeysetPage;
 import study.querydsl.Dto.MemberSearchCondition;
 import study.querydsl.Dto.MemberTeamDto;
-import study.querydsl.Dto.QMemberTeamDto;
-import study.querydsl.entity.Member;
+import study.querydsl.monitoring.MemberQueryMetrics;
 
-
-import javax.persistence.EntityManager;
 import java.util.List;
-
-import static org.springframework.util.ObjectUtils.isEmpty;
-import static study.querydsl.entity.QMember.member;
-import static study.querydsl.entity.QTeam.team;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//쿼리 조립은 MemberQueryTemplates 가 검색 조건 모양별로 한 번만 하고, 여기서는 페이징/카운트 전략만 다르게 가져간다.
+//모두 조회 메소드이므로 읽기 전용 트랜잭션으로 실행한다. (replica 라우팅, count 캐시 대상)
+//메소드별 응답 시간/row 수/SQL 수는 MemberQueryMetrics 로 기록한다.
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
-    private final JPAQueryFactory queryFactory;
-
-    public MemberRepositoryImpl(EntityManager em) {
-        this.queryFactory = new JPAQueryFactory(em);
+    private final MemberQueryTemplates queryTemplates;
+    private final MemberCountCache countCache;
+    private final ParallelQueryExecutor parallelQueryExecutor;
+    private final MemberQueryMetrics metrics;
+
+    public MemberRepositoryImpl(MemberQueryTemplates queryTemplates, MemberCountCache countCache,
+                                ParallelQueryExecutor parallelQueryExecutor, MemberQueryMetrics metrics) {
+        this.queryTemplates = queryTemplates;
+        this.countCache = countCache;
+        this.parallelQueryExecutor = parallelQueryExecutor;
+        this.metrics = metrics;
     }
 
     //회원명, 팀명, 나이(ageGoe, ageLoe)
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id,
-                        member.username,
-                        member.age,
-                        team.id,
-                        team.name))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        return metrics.record("MemberRepository.search", condition, () -> queryTemplates.findDtos(condition, null, null), List::size);
     }
 
     /**
-     * 단순한 페이징, fetchResults() 사용
+     * 단순한 페이징
      */
-    //전체 카운트를 한번에 조회하는 단순한 방법
-    //searchPageSimple(), fetchResults() 사용
+    //전체 카운트를 매번 함께 조회하는 단순한 방법 (fetchResults()와 같이 content 쿼리, count 쿼리 2번 날림)
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition,
                                                 Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id,
-                        member.username,
-                        member.age,
-                        team.id,
-                        team.name))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults(); //fetch를 쓰면 반환타입이 데이터 content를 리스트로 가져오는데( List<MemberTeamDto> )
-                                 //fetchResults를 쓰면 querydsl이 컨텐츠형 쿼리도 날리고 카운트형 쿼리도 날린다. (2번 날림)
-
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
-
-        return new PageImpl<>(content, pageable, total); //PageImpl은 Spring Data Page의 구현체체
+        return metrics.record("MemberRepository.searchPageSimple", condition, () -> {
+            List<MemberTeamDto> content = queryTemplates.findDtos(condition, pageable.getOffset(), pageable.getPageSize());
+            long total = queryTemplates.count(condition);
 
+            return new PageImpl<>(content, pageable, total); //PageImpl은 Spring Data Page의 구현체체
+        }, MemberRepositoryImpl::rows);
     }
 
     //데이터 내용과 전체 카운트를 별도로 조회하는 방법
@@ -85,86 +63,140 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,
                                                  Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id,
-                        member.username,
-                        member.age,
-                        team.id,
-                        team.name))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();  //fetchResults가 아닌 fetch를 보내 content만 뽑고
-        long total = queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetchCount(); //count를 따로 뽑는다.
-
-        return new PageImpl<>(content, pageable, total);
+        return metrics.record("MemberRepository.searchPageComplex", condition, () -> {
+            List<MemberTeamDto> content = queryTemplates.findDtos(condition, pageable.getOffset(), pageable.getPageSize()); //content만 뽑고
+            long total = countCache.get(condition, () -> queryTemplates.count(condition)); //count를 따로 뽑는다. (조건별로 캐시 - MemberCountCache)
+
+            return new PageImpl<>(content, pageable, total);
+        }, MemberRepositoryImpl::rows);
         //어떤 이득이 있냐
         //상황에 따라 다른데
         //전체 카운트를 조회 하는 방법을 최적화 할 수 있으면 이렇게 분리하면 된다. (예를 들어서 전체 카운트를 조회할 때 조인 쿼리를 줄일 수 있다면 상당한 효과가 있다.)
         //fetchResults를 안쓰고 fetchjoin없이(또는 로직을 효율적으로) 따로 뽑을 수 있다면 따로 로직을 구성하는게 성능면에서 우수하다.
     }
-        @Override
-        public Page<MemberTeamDto> usePageableExecutionUtils(MemberSearchCondition condition, Pageable pageable) {
-            List<MemberTeamDto> content = queryFactory
-                    .select(new QMemberTeamDto(
-                            member.id,
-                            member.username,
-                            member.age,
-                            team.id,
-                            team.name))
-                    .from(member)
-                    .leftJoin(member.team, team)
-                    .where(usernameEq(condition.getUsername()),
-                            teamNameEq(condition.getTeamName()),
-                            ageGoe(condition.getAgeGoe()),
-                            ageLoe(condition.getAgeLoe()))
-                    .offset(pageable.getOffset())
-                    .limit(pageable.getPageSize())
-                    .fetch();  //fetchResults가 아닌 fetch를 보내 content만 뽑고
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
-
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount); //searchPageComplex 코드와 여기만 다름.
-            //스프링 데이터 라이브러리가 제공
-            //count 쿼리가 생략 가능한 경우 생략해서 처리(countQuery 실행이 필요없을(비효율적일) 경우)
-            //페이지 시작이면서 컨텐츠 사이즈가 페이지 사이즈보다 작을 때 또는
-            //마지막 페이지 일 때 (offset + 컨텐츠 사이즈를 더해서 전체 사이즈 구해줌)
 
+    @Override
+    public Page<MemberTeamDto> usePageableExecutionUtils(MemberSearchCondition condition, Pageable pageable) {
+        return metrics.record("MemberRepository.usePageableExecutionUtils", condition,
+                () -> pageSkippingCount(condition, pageable), MemberRepositoryImpl::rows);
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return isEmpty(username) ? null : member.username.eq(username);
+    private Page<MemberTeamDto> pageSkippingCount(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = queryTemplates.findDtos(condition, pageable.getOffset(), pageable.getPageSize()); //content만 뽑고
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> countCache.get(condition, () -> queryTemplates.count(condition))); //searchPageComplex 코드와 여기만 다름.
+        //스프링 데이터 라이브러리가 제공
+        //count 쿼리가 생략 가능한 경우 생략해서 처리(countQuery 실행이 필요없을(비효율적일) 경우)
+        //페이지 시작이면서 컨텐츠 사이즈가 페이지 사이즈보다 작을 때 또는
+        //마지막 페이지 일 때 (offset + 컨텐츠 사이즈를 더해서 전체 사이즈 구해줌)
+    }
+
+    /**
+     * content, count 동시 실행
+     */
+    //usePageableExecutionUtils 는 content -> count 순서로 실행해서 응답 시간이 두 쿼리의 합이다.
+    //count 쿼리를 ParallelQueryExecutor 의 다른 쓰레드(다른 커넥션)에 먼저 던져 두고 content 쿼리를 이 쓰레드에서 실행한다.
+    //- count 가 필요 없는 경우(PageableExecutionUtils 가 생략하는 경우)에는 count 쿼리를 취소한다.
+    //  이미 실행 중이면 끝까지 두고 결과만 버린다. (인터럽트하면 JDBC 커넥션이 망가진 채로 풀에 돌아갈 수 있다.)
+    //- content 쿼리가 실패하면 count 쿼리를 취소하고, count 쿼리가 실패하면 그 예외를 그대로 던진다.
+    //- 쓰레드풀이 포화되었거나, 아직 커밋되지 않은 변경이 있을 수 있는 쓰기 트랜잭션 안이라면 순차 실행한다.
+    @Override
+    public Page<MemberTeamDto> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable) {
+        return metrics.record("MemberRepository.searchPageConcurrent", condition,
+                () -> pageWithConcurrentCount(condition, pageable), MemberRepositoryImpl::rows);
+    }
+
+    private Page<MemberTeamDto> pageWithConcurrentCount(MemberSearchCondition condition, Pageable pageable) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return pageSkippingCount(condition, pageable);
+        }
+        Future<Long> countFuture;
+        try {
+            countFuture = parallelQueryExecutor.submit(() -> countCache.get(condition, () -> queryTemplates.count(condition)));
+        } catch (RejectedExecutionException e) {
+            return pageSkippingCount(condition, pageable);
+        }
+
+        AtomicBoolean countUsed = new AtomicBoolean();
+        try {
+            List<MemberTeamDto> content = queryTemplates.findDtos(condition, pageable.getOffset(), pageable.getPageSize());
+            return PageableExecutionUtils.getPage(content, pageable, () -> {
+                countUsed.set(true);
+                return await(countFuture);
+            });
+        } finally {
+            if (!countUsed.get()) {
+                countFuture.cancel(false);
+            }
+        }
+    }
+
+    private static long await(Future<Long> countFuture) {
+        try {
+            return countFuture.get();
+        } catch (InterruptedException e) {
+            countFuture.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("count 쿼리를 기다리는 중 인터럽트 되었습니다.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("count 쿼리가 실패했습니다.", cause);
+        }
+    }
+
+    /**
+     * 키셋(seek) 페이징
+     */
+    private static final Sort KEYSET_SORT = Sort.by("age", "id");
+
+    //offset 페이징은 offset 만큼의 row 를 DB가 읽고 버려야 해서 뒤 페이지로 갈수록 느려진다.
+    //마지막으로 본 (age, member.id) 다음부터 읽으면 몇 번째 페이지든 첫 페이지와 비용이 같다.
+    //count 쿼리 없이 size + 1 건을 조회해서 다음 페이지 존재 여부만 판단한다.
+    @Override
+    public MemberKeysetPage searchKeysetSimple(MemberSearchCondition condition, String continuationToken, Pageable pageable) {
+        int size = keysetSize(pageable);
+        MemberKeysetCursor cursor = MemberKeysetCursor.decode(continuationToken);
+        return metrics.record("MemberRepository.searchKeysetSimple", condition, () -> {
+            List<MemberTeamDto> fetched = keysetContent(condition, cursor, size);
+            return MemberKeysetPage.of(fetched, size, null);
+        }, page -> page.getContent().size());
+    }
+
+    //searchPageComplex 처럼 전체 카운트를 별도 쿼리로 조회한다.
+    @Override
+    public MemberKeysetPage searchKeysetComplex(MemberSearchCondition condition, String continuationToken, Pageable pageable) {
+        int size = keysetSize(pageable);
+        MemberKeysetCursor cursor = MemberKeysetCursor.decode(continuationToken);
+        return metrics.record("MemberRepository.searchKeysetComplex", condition, () -> {
+            List<MemberTeamDto> fetched = keysetContent(condition, cursor, size);
+            long total = countCache.get(condition, () -> queryTemplates.count(condition));
+            return MemberKeysetPage.of(fetched, size, total);
+        }, page -> page.getContent().size());
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return isEmpty(teamName) ? null : team.name.eq(teamName);
+    //pageable 의 offset 대신 continuation token 을 쓰고, 페이지 크기만 가져온다.
+    //정렬은 커서와 같은 (age, id) 오름차순으로 고정이라 다른 정렬은 무시하지 않고 거절한다.
+    private static int keysetSize(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            throw new IllegalArgumentException("키셋 페이징은 페이지 크기가 필요합니다.");
+        }
+        Sort sort = pageable.getSort();
+        if (sort.isSorted() && !sort.equals(KEYSET_SORT) && !sort.equals(Sort.by("age"))) {
+            throw new IllegalArgumentException("키셋 페이징은 age, id 오름차순 정렬만 지원합니다: " + sort);
+        }
+        return pageable.getPageSize();
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe == null ? null : member.age.goe(ageGoe);
+    private List<MemberTeamDto> keysetContent(MemberSearchCondition condition, MemberKeysetCursor cursor, int size) {
+        return queryTemplates.findDtosAfter(condition, cursor, size + 1);
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe == null ? null : member.age.loe(ageLoe);
+    private static int rows(Page<MemberTeamDto> page) {
+        return page.getNumberOfElements();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,207 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원 저장 write-behind (member.write-behind.enabled)
+ */
+//save 를 호출할 때마다 트랜잭션 하나, 커밋(DB 왕복) 하나가 생기면 많은 쓰레드가 동시에 저장할 때 커밋 수가 처리량을 결정한다.
+//켜져 있으면 save 는 대기열(capacity)에 넣기만 하고, flush 쓰레드 하나가 batchSize 건이 모이거나
+//첫 건이 들어온 뒤 flushInterval 이 지나면 한 트랜잭션으로 묶어서 저장한다. (insert 는 JDBC 배치, 커밋은 한 번)
+//- 대기열이 꽉 차면 offerTimeout 동안 호출한 쓰레드를 멈춰 세우고(backpressure), 그래도 자리가 없으면 RejectedExecutionException 으로 실패한다.
+//- 돌려주는 future 는 커밋된 뒤에 완료된다. (id 가 채워진 Member) future 의 후속 작업은 flush 쓰레드에서 실행되므로 오래 걸리는 작업은 *Async 로 넘긴다.
+//- 묶음이 실패하면 한 건씩 다시 저장해서 실패한 회원의 future 만 실패시킨다.
+//호출한 쪽의 트랜잭션과는 별개로 커밋되므로 그 트랜잭션이 롤백되어도 저장은 취소되지 않는다.
+//꺼져 있으면 save 는 지금처럼 바로 저장(트랜잭션 하나)하고 완료된 future 를 돌려준다.
+@Slf4j
+@Component
+public class MemberWriteBehindRepository implements DisposableBean {
+    private final MemberJpaRepository memberJpaRepository;
+    private final TransactionTemplate transaction;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final BlockingQueue<PendingSave> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong savedMembers = new AtomicLong();
+
+    public MemberWriteBehindRepository(MemberJpaRepository memberJpaRepository, PlatformTransactionManager transactionManager,
+                                       @Value("${member.write-behind.enabled:false}") boolean enabled,
+                                       @Value("${member.write-behind.capacity:10000}") int capacity,
+                                       @Value("${member.write-behind.batch-size:500}") int batchSize,
+                                       @Value("${member.write-behind.flush-interval:20ms}") Duration flushInterval,
+                                       @Value("${member.write-behind.offer-timeout:1s}") Duration offerTimeout) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flusher = new Thread(this::runFlusher, "member-write-behind");
+        this.flusher.setDaemon(true);
+        if (enabled) {
+            this.flusher.start();
+        }
+    }
+
+    public CompletableFuture<Member> save(Member member) {
+        CompletableFuture<Member> future = new CompletableFuture<>();
+        if (!enabled) {
+            try {
+                transaction.executeWithoutResult(status -> memberJpaRepository.save(member));
+                savedMembers.incrementAndGet();
+                future.complete(member);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        if (!running) {
+            future.completeExceptionally(new RejectedExecutionException("write-behind 가 종료되었습니다."));
+            return future;
+        }
+        try {
+            if (!queue.offer(new PendingSave(member, future), offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                future.completeExceptionally(new RejectedExecutionException(
+                        "write-behind 대기열(" + (queue.size() + queue.remainingCapacity()) + ")이 꽉 찼습니다."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    //아직 저장되지 않은 회원 수
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getSavedCount() {
+        return savedMembers.get();
+    }
+
+    //더 받지 않고, 대기열에 남은 회원을 모두 저장한 뒤 끝낸다.
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        List<PendingSave> rest = new ArrayList<>(); //flush 쓰레드가 끝난 뒤에 들어온 것
+        queue.drainTo(rest);
+        failAll(rest, new RejectedExecutionException("write-behind 가 종료되었습니다."));
+    }
+
+    //첫 건을 기다렸다가, batchSize 가 찰 때까지 또는 flushInterval 이 지날 때까지 모아서 저장한다.
+    private void runFlusher() {
+        List<PendingSave> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSave first = queue.poll(100, TimeUnit.MILLISECONDS); //종료 여부를 확인하기 위해 오래 기다리지 않는다.
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingSave next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failAll(batch, e);
+                return;
+            } catch (RuntimeException e) {
+                log.error("write-behind flush failed", e);
+                failAll(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingSave> batch) {
+        try {
+            transaction.executeWithoutResult(status -> {
+                for (PendingSave pending : batch) {
+                    memberJpaRepository.save(pending.member);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("write-behind batch of {} failed - retrying one by one", batch.size(), e);
+            flushOneByOne(batch);
+            return;
+        }
+        batches.incrementAndGet();
+        savedMembers.addAndGet(batch.size());
+        for (PendingSave pending : batch) {
+            pending.future.complete(pending.member);
+        }
+    }
+
+    //롤백된 묶음에서 채번된 id 는 버리고 다시 채번한다. (id 가 있으면 persist 할 수 없다.)
+    private void flushOneByOne(List<PendingSave> batch) {
+        for (PendingSave pending : batch) {
+            pending.member.setId(null);
+            try {
+                transaction.executeWithoutResult(status -> memberJpaRepository.save(pending.member));
+                savedMembers.incrementAndGet();
+                pending.future.complete(pending.member);
+            } catch (RuntimeException e) {
+                pending.member.setId(null);
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void failAll(List<PendingSave> batch, Throwable cause) {
+        for (PendingSave pending : batch) {
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    private static class PendingSave {
+        private final Member member;
+        private final CompletableFuture<Member> future;
+
+        PendingSave(Member member, CompletableFuture<Member> future) {
+            this.member = member;
+            this.future = future;
+        }
+    }
+}
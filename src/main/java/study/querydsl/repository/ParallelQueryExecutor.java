@@ -0,0 +1,55 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//페이징 검색의 count 쿼리처럼 content 쿼리와 동시에 돌릴 쿼리를 실행하는 쓰레드풀
+//쓰레드마다 읽기 전용 트랜잭션을 새로 열기 때문에 호출한 쓰레드와는 다른 커넥션(영속성 컨텍스트)에서 실행된다.
+//쓰레드 수와 대기열 크기가 정해져 있어서 포화되면 RejectedExecutionException 을 던진다. (호출 쪽에서 순차 실행으로 대체)
+//Executor 타입 빈으로 등록하면 스프링 부트의 기본 applicationTaskExecutor 가 빠지므로 감싸서 등록한다.
+@Component
+public class ParallelQueryExecutor implements DisposableBean {
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ParallelQueryExecutor(PlatformTransactionManager transactionManager,
+                                 @Value("${member.parallel-query.threads:4}") int threads,
+                                 @Value("${member.parallel-query.queue-capacity:100}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("parallel-query-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public <T> Future<T> submit(Supplier<T> query) throws RejectedExecutionException {
+        return executor.submit(() -> readOnlyTransaction.execute(status -> query.get()));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Dto.CacheStatisticsDto;
+import study.querydsl.Dto.TeamStatisticsDto;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@Repository
+public class TeamJpaRepository {
+    public static final String TEAM_REGION = "team";
+    public static final String TEAM_BY_NAME_REGION = "team-by-name";
+
+    private final JPAQueryFactory queryFactory;
+    private final SessionFactory sessionFactory;
+
+    public TeamJpaRepository(JPAQueryFactory queryFactory, EntityManagerFactory emf) {
+        this.queryFactory = queryFactory;
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+    }
+
+    //팀 이름 -> 팀 id (검색 조건 teamName 을 member.team.id in (...) 으로 바꿀 때 사용)
+    //쿼리 캐시에 두므로 team 테이블이 바뀌기 전까지는 DB에 가지 않는다.
+    //team 테이블에 쓰기가 일어나면 하이버네이트가 쿼리 캐시를 알아서 무효화한다. (update timestamps)
+    @Transactional(readOnly = true)
+    public List<Long> findIdsByName(String name) {
+        return queryFactory
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(name))
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, TEAM_BY_NAME_REGION)
+                .fetch();
+    }
+
+    //팀별 나이 통계를 member 테이블 전체를 읽어서 구한다. (TeamStatisticsStore 가 준비되기 전, 검증용)
+    @Transactional(readOnly = true)
+    public List<TeamStatisticsDto> findAgeStatistics() {
+        List<Tuple> rows = queryFactory
+                .select(team.id, team.name, member.count(), member.age.sum(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.id, team.name)
+                .orderBy(team.id.asc())
+                .fetch();
+        List<TeamStatisticsDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            result.add(new TeamStatisticsDto(row.get(team.id), row.get(team.name),
+                    row.get(2, Number.class).longValue(), row.get(3, Number.class).longValue(),
+                    row.get(4, Number.class).intValue(), row.get(5, Number.class).intValue()));
+        }
+        return result;
+    }
+
+    //2차 캐시 적중률 (hibernate.generate_statistics 가 켜져 있어야 집계된다. - cache-stats 프로파일, 꺼져 있으면 0)
+    public CacheStatisticsDto teamCacheStatistics() {
+        return CacheStatisticsDto.of(TEAM_REGION,
+                sessionFactory.getStatistics().getDomainDataRegionStatistics(TEAM_REGION));
+    }
+
+    public CacheStatisticsDto teamByNameCacheStatistics() {
+        CacheRegionStatistics statistics = sessionFactory.getStatistics().getQueryRegionStatistics(TEAM_BY_NAME_REGION);
+        return CacheStatisticsDto.of(TEAM_BY_NAME_REGION, statistics);
+    }
+}
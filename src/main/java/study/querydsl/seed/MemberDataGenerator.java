@@ -0,0 +1,142 @@
+package study.querydsl.seed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 대량 데이터 생성기
+ */
+//회원 한 명마다 persist 하고 트랜잭션 하나로 끝까지 넣으면 영속성 컨텍스트가 끝없이 커지고 row 마다 DB를 왕복한다.
+//- chunkSize 명씩 별도 트랜잭션으로 나누고, flushSize 마다 flush/clear 해서 영속성 컨텍스트 크기를 일정하게 유지한다.
+//- hibernate.jdbc.batch_size 로 insert 를 JDBC 배치로 묶고, id 는 시퀀스 pooled 할당(allocationSize)으로 미리 받아온다.
+//- threads > 1 이면 청크를 여러 쓰레드가 동시에 넣는다. (쓰레드마다 트랜잭션과 영속성 컨텍스트가 따로다.)
+//청크마다 (seed, 청크 번호)로 난수를 만들기 때문에 회원 번호별 username/age/팀은 쓰레드 수와 상관없이 같다.
+//단, member.id 는 쓰레드들이 시퀀스 블록을 먼저 받아가는 순서대로 정해지므로 threads = 1 일 때만 재현된다.
+//(id 로 조회 대상을 고르는 벤치마크는 threads = 1 로 만든 데이터를 써야 한다.)
+@Slf4j
+@Component
+public class MemberDataGenerator {
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final MemberSeedProperties properties;
+
+    public MemberDataGenerator(EntityManager em, PlatformTransactionManager transactionManager,
+                               MemberSeedProperties properties) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+    }
+
+    public long generate() {
+        return generate(properties);
+    }
+
+    public long generate(MemberSeedProperties seed) {
+        long start = System.nanoTime();
+        List<Long> teamIds = transactionTemplate.execute(status -> createTeams(seed.getTeams()));
+
+        int chunks = (seed.getMembers() + seed.getChunkSize() - 1) / seed.getChunkSize();
+        if (seed.getThreads() <= 1) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                insertChunk(seed, teamIds, chunk);
+            }
+        } else {
+            insertInParallel(seed, teamIds, chunks);
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("seeded members={} teams={} chunks={} threads={} in {}ms ({} rows/s)",
+                seed.getMembers(), seed.getTeams(), chunks, seed.getThreads(), elapsedMillis,
+                seed.getMembers() * 1000L / elapsedMillis);
+        return seed.getMembers();
+    }
+
+    private List<Long> createTeams(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Team team = new Team(teamName(i));
+            em.persist(team);
+            ids.add(team.getId());
+        }
+        return ids;
+    }
+
+    private void insertInParallel(MemberSeedProperties seed, List<Long> teamIds, int chunks) {
+        ExecutorService executor = Executors.newFixedThreadPool(seed.getThreads());
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks);
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int chunkIndex = chunk;
+                futures.add(executor.submit(() -> insertChunk(seed, teamIds, chunkIndex)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("데이터 생성이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("데이터 생성에 실패했습니다.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void insertChunk(MemberSeedProperties seed, List<Long> teamIds, int chunk) {
+        int from = chunk * seed.getChunkSize();
+        int to = Math.min(from + seed.getChunkSize(), seed.getMembers());
+        SplittableRandom random = new SplittableRandom(seed.getSeed() * 31 + chunk);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team[] teams = references(teamIds);
+            for (int i = from; i < to; i++) {
+                int teamIndex = pickTeam(seed, random, i);
+                int age = seed.getSkew() <= 0 ? i % seed.getMaxAge() : random.nextInt(seed.getMaxAge());
+                Member member = new Member("member" + i, age);
+                member.setTeam(teams[teamIndex]); //changeTeam()은 team.members 컬렉션을 건드려서 프록시 초기화 쿼리가 나간다. FK만 있으면 된다.
+                em.persist(member);
+                if ((i - from + 1) % seed.getFlushSize() == 0) {
+                    em.flush();
+                    em.clear();
+                    teams = references(teamIds); //clear 후에는 준영속 상태라 다시 참조를 얻는다.
+                }
+            }
+        });
+    }
+
+    //u^skew 는 skew 가 클수록 0 쪽으로 몰린다. -> 앞 번호 팀에 회원이 많은 치우친 분포
+    private int pickTeam(MemberSeedProperties seed, SplittableRandom random, int memberIndex) {
+        int teams = seed.getTeams();
+        if (seed.getSkew() <= 0) {
+            return memberIndex % teams;
+        }
+        int index = (int) (teams * Math.pow(random.nextDouble(), seed.getSkew()));
+        return Math.min(index, teams - 1);
+    }
+
+    private Team[] references(List<Long> teamIds) {
+        Team[] teams = new Team[teamIds.size()];
+        for (int i = 0; i < teams.length; i++) {
+            teams[i] = em.getReference(Team.class, teamIds.get(i));
+        }
+        return teams;
+    }
+
+    //teamA, teamB, ... teamZ, team26, team27 ...
+    static String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+}
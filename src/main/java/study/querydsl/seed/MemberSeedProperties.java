@@ -0,0 +1,35 @@
+package study.querydsl.seed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+//테스트/부하 테스트용 데이터 생성 설정 (member.seed.*)
+//기본값은 예전 InitMember 와 같다. (팀 2개, 회원 100명, 번갈아 배정)
+@Getter @Setter
+@Component
+@ConfigurationProperties(prefix = "member.seed")
+public class MemberSeedProperties {
+    private int members = 100;
+    private int teams = 2;
+    private int chunkSize = 1000;  //한 트랜잭션에서 넣을 회원 수
+    private int flushSize = 100;   //이만큼 persist 할 때마다 flush/clear (jdbc batch_size 와 맞추는 게 좋다.)
+    private int threads = 1;       //청크를 동시에 넣을 쓰레드 수 (1보다 크면 member.id 배정 순서는 실행마다 달라진다.)
+    private long seed = 42;        //같은 seed 면 쓰레드 수와 상관없이 회원별 username/age/팀이 같다.
+    private double skew = 0;       //0 이하: 팀을 번갈아 배정, 1: 균등 분포, 1보다 크면 앞쪽 팀으로 몰린다.
+    private int maxAge = 100;
+
+    public MemberSeedProperties copy() {
+        MemberSeedProperties copy = new MemberSeedProperties();
+        copy.setMembers(members);
+        copy.setTeams(teams);
+        copy.setChunkSize(chunkSize);
+        copy.setFlushSize(flushSize);
+        copy.setThreads(threads);
+        copy.setSeed(seed);
+        copy.setSkew(skew);
+        copy.setMaxAge(maxAge);
+        return copy;
+    }
+}
@@ -0,0 +1,122 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//프로세스 내부 H2 인스턴스 3개(primary, replica1, replica2)에 각자 이름을 넣어 두고
+//어느 DB에서 읽었는지로 라우팅을 확인한다.
+class ReplicaRoutingDataSourceTest {
+    ReplicaRoutingDataSource routingDataSource;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate readOnly;
+    TransactionTemplate readWrite;
+
+    @BeforeEach
+    public void before() {
+        DataSource primary = node("primary");
+        DataSource replica1 = node("replica1");
+        DataSource replica2 = node("replica2");
+        routingDataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica1, replica2), 0);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        routingDataSource.close();
+    }
+
+    @Test
+    public void readOnlyTransactionsAreBalancedAcrossReplicas() {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(readOnly.execute(status -> currentNode()));
+        }
+        assertThat(nodes).containsExactly("replica1", "replica2", "replica1", "replica2");
+    }
+
+    @Test
+    public void writesAndNonTransactionalCallsGoToPrimary() {
+        assertThat(readWrite.execute(status -> currentNode())).isEqualTo("primary");
+        assertThat(currentNode()).isEqualTo("primary");
+    }
+
+    @Test
+    public void forcePrimaryForReadYourWrites() {
+        String node = DataSourceRouting.forcePrimary(() -> readOnly.execute(status -> currentNode()));
+        assertThat(node).isEqualTo("primary");
+    }
+
+    @Test
+    public void unhealthyReplicaIsSkipped() throws Exception {
+        DataSource primary = node("primary");
+        DataSource down = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/mem:down"); //접속할 수 없는 replica
+        DataSource replica = node("replica2");
+        routingDataSource.close();
+        routingDataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(down, replica), 0);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+
+        routingDataSource.checkHealth();
+        assertThat(routingDataSource.healthyReplicaCount()).isEqualTo(1);
+        assertThat(readOnly.execute(status -> currentNode())).isEqualTo("replica2");
+        assertThat(readOnly.execute(status -> currentNode())).isEqualTo("replica2");
+    }
+
+    //계정을 지정해도 같은 규칙으로 라우팅한다. (H2 메모리 DB 는 처음 접속한 빈 계정이 관리자다.)
+    @Test
+    public void connectionWithCredentialsIsRoutedToo() {
+        assertThat(readOnly.execute(status -> nodeOf(routingDataSource, "", ""))).isEqualTo("replica1");
+        assertThat(readOnly.execute(status -> nodeOf(routingDataSource, "", ""))).isEqualTo("replica2");
+        assertThat(readWrite.execute(status -> nodeOf(routingDataSource, "", ""))).isEqualTo("primary");
+        assertThat(nodeOf(routingDataSource, "", "")).isEqualTo("primary");
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private static String nodeOf(DataSource dataSource, String username, String password) {
+        try (Connection connection = dataSource.getConnection(username, password);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select name from node")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataSource node(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing_" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (name varchar(20))");
+        jdbcTemplate.update("delete from node");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+}
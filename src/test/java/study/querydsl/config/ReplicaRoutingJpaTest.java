@@ -0,0 +1,116 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//JpaTransactionManager + 하이버네이트로 읽기 전용 트랜잭션 다음에 쓰기 트랜잭션을 실행했을 때
+//쓰기가 어느 DB로 가는지 확인한다. (엔티티 없이 네이티브 쿼리만 쓴다.)
+class ReplicaRoutingJpaTest {
+    ReplicaRoutingDataSource routingDataSource;
+    DataSource primary;
+    LocalContainerEntityManagerFactoryBean factoryBean;
+    EntityManagerFactory emf;
+    EntityManager em;
+    TransactionTemplate readOnly;
+    TransactionTemplate readWrite;
+
+    @BeforeEach
+    public void before() {
+        primary = node("primary");
+        routingDataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(node("replica1")), 0);
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new LazyConnectionDataSourceProxy(routingDataSource));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter()); //스프링 부트와 같이 DELAYED_ACQUISITION_AND_HOLD
+        factoryBean.setPackagesToScan(ReplicaRoutingJpaTest.class.getPackage().getName());
+        factoryBean.afterPropertiesSet();
+        emf = factoryBean.getObject();
+        em = SharedEntityManagerCreator.createSharedEntityManager(emf);
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void after() throws Exception {
+        factoryBean.destroy();
+        routingDataSource.close();
+    }
+
+    //트랜잭션마다 EntityManager 가 따로면(OSIV 꺼짐) 쓰기는 primary 로 간다.
+    @Test
+    public void writeAfterReadGoesToPrimary() {
+        assertThat(readOnly.execute(status -> currentNode())).isEqualTo("replica1");
+
+        String node = readWrite.execute(status -> {
+            String current = currentNode();
+            em.createNativeQuery("insert into node values ('written')").executeUpdate();
+            return current;
+        });
+
+        assertThat(node).isEqualTo("primary");
+        assertThat(writtenRows(primary)).isEqualTo(1);
+    }
+
+    //OSIV 처럼 EntityManager 하나가 두 트랜잭션에 걸쳐 있으면 먼저 얻은 replica 커넥션을 계속 쓴다.
+    //그래서 라우팅을 켤 때는 spring.jpa.open-in-view 를 꺼야 한다.
+    @Test
+    public void sharedEntityManagerKeepsReplicaConnection() {
+        EntityManager requestScoped = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(requestScoped));
+        try {
+            assertThat(readOnly.execute(status -> currentNode())).isEqualTo("replica1");
+            assertThat(readWrite.execute(status -> currentNode())).isEqualTo("replica1");
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            EntityManagerFactoryUtils.closeEntityManager(requestScoped);
+        }
+    }
+
+    @Test
+    public void routingRequiresOpenInViewDisabled() {
+        assertThatThrownBy(() -> new ReplicaDataSourceConfig()
+                .dataSource(new DataSourceProperties(), new ReplicaDataSourceProperties(), true))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private String currentNode() {
+        return (String) em.createNativeQuery("select name from node").getSingleResult();
+    }
+
+    private static int writtenRows(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from node where name = 'written'", Integer.class);
+    }
+
+    private static DataSource node(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing_jpa_" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (name varchar(20))");
+        jdbcTemplate.update("delete from node");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+}
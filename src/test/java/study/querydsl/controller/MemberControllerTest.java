@@ -0,0 +1,63 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import study.querydsl.Dto.MemberTeamDto;
+import study.querydsl.repository.MemberAsyncRepository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//v2 (비동기) 조회의 응답 - DB 쓰레드풀은 mock 으로 대신한다.
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+    @Autowired
+    MockMvc mockMvc;
+    @MockBean
+    MemberAsyncRepository memberAsyncRepository;
+
+    @Test
+    public void searchMemberV2() throws Exception {
+        when(memberAsyncRepository.search(any())).thenReturn(CompletableFuture.completedFuture(
+                Collections.singletonList(new MemberTeamDto(1L, "member1", 10, null, null))));
+
+        MvcResult result = mockMvc.perform(get("/v2/members"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].username").value("member1"));
+    }
+
+    //bulkhead 나 DB 쓰레드풀 대기열이 꽉 차서 거절되면 503
+    @Test
+    public void rejectedSearchIsServiceUnavailable() throws Exception {
+        CompletableFuture<List<MemberTeamDto>> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new RejectedExecutionException("search 동시 실행 수(4)를 넘었습니다."));
+        when(memberAsyncRepository.search(any())).thenReturn(rejected);
+
+        MvcResult result = mockMvc.perform(get("/v2/members"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -0,0 +1,129 @@
+package study.querydsl.export;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberExporterTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberExporter memberExporter;
+
+    Member member1;
+    Member member2;
+    Member member3;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        member1 = new Member("member1", 10, teamA);
+        member2 = new Member("kim, \"jr\"", 20, teamA);
+        member3 = new Member("회원3", 30);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void exportCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = memberExporter.export(Channels.newChannel(out), MemberExportFormat.CSV, false, 0, true,
+                MemberExportCheckpointListener.NONE);
+
+        Long teamId = member1.getTeam().getId();
+        assertThat(rows).isEqualTo(3);
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "member_id,username,age,team_id,team_name\n"
+                        + member1.getId() + ",member1,10," + teamId + ",teamA\n"
+                        + member2.getId() + ",\"kim, \"\"jr\"\"\",20," + teamId + ",teamA\n"
+                        + member3.getId() + ",회원3,30,,\n");
+    }
+
+    @Test
+    public void exportBinary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        memberExporter.export(Channels.newChannel(out), MemberExportFormat.BINARY, false, 0, true,
+                MemberExportCheckpointListener.NONE);
+
+        assertThat(readBinary(new ByteArrayInputStream(out.toByteArray())))
+                .containsExactly("member1/10/teamA", "kim, \"jr\"/20/teamA", "회원3/30/null");
+    }
+
+    //checkpoint 의 lastMemberId 다음부터 이어 쓴 gzip 은 앞부분 뒤에 gzip member 로 이어 붙어서 하나의 파일로 읽힌다.
+    @Test
+    public void resumeGzipFromCheckpoint() throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        List<Long> checkpoints = new ArrayList<>();
+        memberExporter.export(Channels.newChannel(file), MemberExportFormat.BINARY, true, 0, true,
+                (lastMemberId, rows) -> checkpoints.add(lastMemberId));
+        assertThat(checkpoints).containsExactly(member3.getId());
+
+        em.persist(new Member("member4", 40));
+        em.flush();
+        long rows = memberExporter.export(Channels.newChannel(file), MemberExportFormat.BINARY, true,
+                checkpoints.get(0), false, MemberExportCheckpointListener.NONE);
+
+        assertThat(rows).isEqualTo(1);
+        assertThat(readBinary(new GZIPInputStream(new ByteArrayInputStream(file.toByteArray()))))
+                .containsExactly("member1/10/teamA", "kim, \"jr\"/20/teamA", "회원3/30/null", "member4/40/null");
+    }
+
+    private List<String> readBinary(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        byte[] magic = new byte[MemberExportWriter.BINARY_MAGIC.length];
+        in.readFully(magic);
+        assertThat(magic).isEqualTo(MemberExportWriter.BINARY_MAGIC);
+        List<String> rows = new ArrayList<>();
+        while (true) {
+            try {
+                in.readInt(); //row 길이
+            } catch (EOFException e) {
+                return rows;
+            }
+            in.readLong(); //member_id
+            int age = in.readInt();
+            String username = readString(in);
+            String teamName = null;
+            if (in.readByte() == 1) {
+                in.readLong(); //team_id
+                teamName = readString(in);
+            }
+            rows.add(username + "/" + age + "/" + teamName);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package study.querydsl.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//스프링 컨텍스트 없이 파싱 결과를 확인한다. window 를 아주 작게 해서 row 가 window 경계에 걸치는 경우도 확인한다.
+class MemberCsvReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void readInChunks() throws IOException {
+        Path file = write("member_id,age,username,team_name\r\n"
+                + "1,10,member1,teamA\r\n"
+                + "2,20,\"kim, \"\"jr\"\"\",teamA\r\n"
+                + "\r\n"
+                + "3,x,member3,teamB\r\n"
+                + "4,40,회원4,\n"
+                + "5,50,member5,teamB");
+
+        List<String> rows = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        try (MemberCsvReader reader = new MemberCsvReader(file, 40)) {
+            MemberCsvChunk chunk;
+            for (int index = 0; (chunk = reader.next(index, 2)) != null; index++) {
+                for (int row = 0; row < chunk.size(); row++) {
+                    rows.add(chunk.getUsername(row) + "/" + chunk.getAge(row) + "/" + chunk.getTeamName(row));
+                }
+                rejected.addAll(chunk.getRejected());
+            }
+        }
+
+        assertThat(rows).containsExactly(
+                "member1/10/teamA", "kim, \"jr\"/20/teamA", "회원4/40/null", "member5/50/teamB");
+        assertThat(rejected).hasSize(1).allMatch(reason -> reason.startsWith("5: "));
+    }
+
+    @Test
+    public void requiredColumns() throws IOException {
+        Path file = write("username,team_name\nmember1,teamA\n");
+
+        assertThatThrownBy(() -> new MemberCsvReader(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = dir.resolve("members.csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
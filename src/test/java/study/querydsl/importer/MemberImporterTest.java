@@ -0,0 +1,79 @@
+package study.querydsl.importer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.MemberImportResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//청크마다 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행하고 끝나면 직접 지운다.
+@SpringBootTest(properties = {"member.import.chunk-size=2", "member.import.batch-size=1", "member.import.threads=2"})
+class MemberImporterTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberImporter memberImporter;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    //이미 있는 팀(teamA)은 그대로 쓰고 없는 팀(teamB)만 만든다. age 가 잘못된 row 는 건너뛰고 청크 리포트에 남는다.
+    @Test
+    public void importCsv() throws IOException {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long teamAId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            return teamA.getId();
+        });
+        Path file = dir.resolve("members.csv");
+        Files.write(file, ("username,age,teamName\n"
+                + "member1,10,teamA\n"
+                + "member2,20,teamB\n"
+                + "member3,abc,teamB\n"
+                + "member4,40,\n"
+                + "member5,50,teamB\n").getBytes(StandardCharsets.UTF_8));
+
+        MemberImportResult result = memberImporter.importCsv(file);
+
+        assertThat(result.getImportedRows()).isEqualTo(4);
+        assertThat(result.getRejectedRows()).isEqualTo(1);
+        assertThat(result.getFailedChunks()).isZero();
+        assertThat(result.getCreatedTeams()).isEqualTo(1);
+        assertThat(result.getChunkReports()).hasSize(1);
+        assertThat(result.getChunkReports().get(0).getRejected()).containsExactly("4: age 가 숫자가 아닙니다. (abc)");
+
+        List<Member> members = tx.execute(status -> em
+                .createQuery("select m from Member m left join fetch m.team order by m.username", Member.class)
+                .getResultList());
+        assertThat(members).extracting("username").containsExactly("member1", "member2", "member4", "member5");
+        assertThat(members.get(0).getTeam().getId()).isEqualTo(teamAId);
+        assertThat(members.get(1).getTeam().getName()).isEqualTo("teamB");
+        assertThat(members.get(2).getTeam()).isNull();
+        assertThat(members.get(3).getTeam().getId()).isEqualTo(members.get(1).getTeam().getId());
+    }
+}
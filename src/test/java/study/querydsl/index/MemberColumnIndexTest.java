@@ -0,0 +1,65 @@
+package study.querydsl.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import study.querydsl.Dto.MemberSearchCondition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//스프링 컨텍스트 없이 인덱스 검색 결과가 MemberQueryTemplates 의 조건과 같은지 확인한다.
+class MemberColumnIndexTest {
+    MemberColumnIndex index;
+
+    @BeforeEach
+    public void before() {
+        index = new MemberColumnIndex();
+        index.upsert(1L, "member1", 10, 100L, "teamA");
+        index.upsert(2L, "member2", 20, 100L, "teamA");
+        index.upsert(3L, "member3", 30, 200L, "teamB");
+        index.upsert(4L, "member4", 40, 200L, "teamB");
+        index.upsert(5L, "member5", 50, null, null);
+    }
+
+    @Test
+    public void search() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+        condition.setTeamName("teamB");
+        assertThat(index.search(condition)).extracting("username").containsExactly("member4");
+
+        MemberSearchCondition all = new MemberSearchCondition();
+        all.setUsername("");
+        assertThat(index.search(all)).extracting("memberId").containsExactly(1L, 2L, 3L, 4L, 5L);
+
+        MemberSearchCondition byName = new MemberSearchCondition();
+        byName.setUsername("member5");
+        assertThat(index.search(byName)).extracting("teamName").containsExactly((Object) null);
+
+        MemberSearchCondition noSuchTeam = new MemberSearchCondition();
+        noSuchTeam.setTeamName("teamC");
+        assertThat(index.search(noSuchTeam)).isEmpty();
+
+        MemberSearchCondition emptyRange = new MemberSearchCondition();
+        emptyRange.setAgeGoe(40);
+        emptyRange.setAgeLoe(30);
+        assertThat(index.search(emptyRange)).isEmpty();
+    }
+
+    //수정/삭제가 반영되고, 삭제된 슬롯을 재사용해도 결과는 member.id 순이다.
+    @Test
+    public void updateAndRemove() {
+        index.upsert(2L, "member2", 35, 200L, null); //teamA -> teamB, 나이 변경 (팀 이름은 사전에서)
+        index.remove(1L);
+        index.upsert(6L, "member6", 36, 100L, "teamA");
+
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+        assertThat(index.search(teamB)).extracting("username").containsExactly("member2", "member3", "member4");
+
+        MemberSearchCondition ageGoe = new MemberSearchCondition();
+        ageGoe.setAgeGoe(35);
+        assertThat(index.search(ageGoe)).extracting("memberId").containsExactly(2L, 4L, 5L, 6L);
+        assertThat(index.size()).isEqualTo(5);
+    }
+}
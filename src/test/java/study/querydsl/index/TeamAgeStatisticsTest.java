@@ -0,0 +1,63 @@
+package study.querydsl.index;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.Dto.TeamStatisticsDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//저장/팀 변경/나이 변경/삭제를 무작위로 반영한 결과가 전체를 다시 집계한 결과와 같은지 확인한다.
+class TeamAgeStatisticsTest {
+
+    @Test
+    public void sameAsFullScan() {
+        TeamAgeStatistics statistics = new TeamAgeStatistics();
+        Map<Long, long[]> members = new HashMap<>(); //memberId -> {teamId, age}
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (int i = 0; i < 5_000; i++) {
+            long memberId = random.nextInt(300);
+            if (random.nextInt(5) == 0) {
+                statistics.remove(memberId);
+                members.remove(memberId);
+            } else {
+                long teamId = random.nextInt(10);
+                int age = random.nextInt(100);
+                statistics.upsert(memberId, teamId, "team" + teamId, age);
+                members.put(memberId, new long[]{teamId, age});
+            }
+        }
+
+        assertThat(statistics.statistics()).isEqualTo(fullScan(members));
+    }
+
+    @Test
+    public void minMaxAfterRemove() {
+        TeamAgeStatistics statistics = new TeamAgeStatistics();
+        statistics.upsert(1L, 100L, "teamA", 10);
+        statistics.upsert(2L, 100L, "teamA", 20);
+        statistics.upsert(3L, 100L, "teamA", 30);
+        statistics.upsert(3L, 200L, "teamB", 30); //changeTeam
+        statistics.remove(1L);
+
+        assertThat(statistics.statistics()).containsExactly(
+                new TeamStatisticsDto(100L, "teamA", 1, 20, 20, 20),
+                new TeamStatisticsDto(200L, "teamB", 1, 30, 30, 30));
+    }
+
+    private static List<TeamStatisticsDto> fullScan(Map<Long, long[]> members) {
+        Map<Long, IntSummaryStatistics> byTeam = new TreeMap<>();
+        members.values().forEach(m -> byTeam.computeIfAbsent(m[0], id -> new IntSummaryStatistics()).accept((int) m[1]));
+        List<TeamStatisticsDto> result = new ArrayList<>();
+        byTeam.forEach((teamId, s) -> result.add(
+                new TeamStatisticsDto(teamId, "team" + teamId, s.getCount(), s.getSum(), s.getMin(), s.getMax())));
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package study.querydsl.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.TeamStatisticsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberBulkProgressListener;
+import study.querydsl.repository.MemberBulkRepository;
+import study.querydsl.repository.TeamJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//변경은 커밋된 뒤(AFTER_COMMIT) 반영되므로 테스트 트랜잭션(@Transactional) 없이 커밋하고, 끝나면 지운 뒤 다시 만든다.
+//증분 갱신한 결과가 group by 쿼리(TeamJpaRepository.findAgeStatistics)와 같은지 확인한다.
+@SpringBootTest(properties = "member.team-stats.enabled=true")
+class TeamStatisticsStoreTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TeamStatisticsStore teamStatisticsStore;
+    @Autowired
+    TeamJpaRepository teamJpaRepository;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Team teamA;
+    Team teamB;
+    Member member1;
+    Member member4;
+
+    //QuerydslBasicTest.group() 과 같은 데이터 - teamA 평균 15, teamB 평균 35
+    @BeforeEach
+    public void before() throws InterruptedException {
+        tx = new TransactionTemplate(transactionManager);
+        awaitReady(); //준비된 뒤의 변경은 커밋될 때 반영된다.
+        teamA = new Team("teamA");
+        teamB = new Team("teamB");
+        member1 = new Member("member1", 10, teamA);
+        member4 = new Member("member4", 40, teamB);
+        tx.executeWithoutResult(status -> {
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(member4);
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        teamStatisticsStore.rebuild(); //벌크 delete 는 이벤트가 없다.
+    }
+
+    @Test
+    public void persistIsApplied() {
+        assertThat(teamStatisticsStore.isReady()).isTrue();
+        assertThat(teamStatisticsStore.statistics()).containsExactly(
+                new TeamStatisticsDto(teamA.getId(), "teamA", 2, 30, 10, 20),
+                new TeamStatisticsDto(teamB.getId(), "teamB", 2, 70, 30, 40));
+        assertThat(teamStatisticsStore.verify()).isTrue();
+    }
+
+    //팀 변경, 나이 변경, 삭제
+    @Test
+    public void changeTeamAgeAndRemoveAreApplied() {
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, member1.getId()).changeTeam(em.find(Team.class, teamB.getId()));
+            em.find(Member.class, member4.getId()).setAge(45);
+        });
+        assertThat(teamStatisticsStore.statistics()).containsExactly(
+                new TeamStatisticsDto(teamA.getId(), "teamA", 1, 20, 20, 20),
+                new TeamStatisticsDto(teamB.getId(), "teamB", 3, 85, 10, 45));
+        assertThat(teamStatisticsStore.verify()).isTrue();
+
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, member4.getId())));
+        assertThat(teamStatisticsStore.statistics()).isEqualTo(teamJpaRepository.findAgeStatistics());
+        assertThat(teamStatisticsStore.verify()).isTrue();
+    }
+
+    //벌크 연산은 어떤 row 가 바뀌었는지 모르므로 다시 만든다.
+    @Test
+    public void bulkChangeRebuilds() throws InterruptedException {
+        memberBulkRepository.addAge(5, 2, MemberBulkProgressListener.NONE);
+
+        awaitReady();
+        assertThat(teamStatisticsStore.statistics()).containsExactly(
+                new TeamStatisticsDto(teamA.getId(), "teamA", 2, 40, 15, 25),
+                new TeamStatisticsDto(teamB.getId(), "teamB", 2, 80, 35, 45));
+        assertThat(teamStatisticsStore.verify()).isTrue();
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!teamStatisticsStore.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(teamStatisticsStore.isReady()).isTrue();
+    }
+}
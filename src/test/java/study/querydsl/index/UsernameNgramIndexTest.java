@@ -0,0 +1,48 @@
+package study.querydsl.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//스프링 컨텍스트 없이 prefix/contains 후보 id 가 like 검색과 같은지 확인한다.
+class UsernameNgramIndexTest {
+    UsernameNgramIndex index;
+
+    @BeforeEach
+    public void before() {
+        index = new UsernameNgramIndex();
+        index.upsert(1L, "member1");
+        index.upsert(2L, "member2");
+        index.upsert(3L, "remember");
+        index.upsert(4L, "mebmer");
+        index.upsert(5L, null);
+    }
+
+    @Test
+    public void find() {
+        assertThat(index.find("mem", null, 100)).containsExactly(1L, 2L);
+        assertThat(index.find(null, "member", 100)).containsExactly(1L, 2L, 3L);
+        assertThat(index.find(null, "mer", 100)).containsExactly(4L);
+        assertThat(index.find(null, "er", 100)).containsExactly(1L, 2L, 3L, 4L); //trigram 보다 짧은 검색어
+        assertThat(index.find("re", "member", 100)).containsExactly(3L);
+        assertThat(index.find("", "", 100)).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(index.find(null, "xyz", 100)).isEmpty();
+    }
+
+    @Test
+    public void tooManyCandidates() {
+        assertThat(index.find(null, "member", 2)).isNull();
+        assertThat(index.find("member", "2", 2)).containsExactly(2L);
+    }
+
+    @Test
+    public void upsertAndRemove() {
+        index.upsert(1L, "renamed");
+        index.remove(2L);
+
+        assertThat(index.find("mem", null, 100)).isEmpty();
+        assertThat(index.find(null, "name", 100)).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+}
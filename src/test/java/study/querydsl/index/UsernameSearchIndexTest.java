@@ -0,0 +1,149 @@
+package study.querydsl.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.Dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitoring.StatementCounter;
+import study.querydsl.monitoring.StatementScope;
+import study.querydsl.repository.MemberQueryTemplates;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//인덱스는 커밋된 회원으로 유지되고(AFTER_COMMIT 이벤트) 쓰기 트랜잭션 안에서는 쓰지 않으므로
+//테스트 트랜잭션(@Transactional) 없이 데이터를 커밋하고 읽기 전용 트랜잭션에서 조회한다. 끝나면 지우고 인덱스를 다시 만든다.
+//max-candidates 는 3 - "mem" 으로 시작하는 회원(4명)은 like 로 거른다.
+@SpringBootTest(properties = {"member.username-index.enabled=true", "member.username-index.max-candidates=3"})
+class UsernameSearchIndexTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    UsernameSearchIndex usernameSearchIndex;
+    @Autowired
+    MemberQueryTemplates memberQueryTemplates;
+    @Autowired
+    StatementCounter statementCounter;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void before() throws InterruptedException {
+        tx = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        awaitReady(); //준비된 뒤의 저장은 커밋될 때 인덱스에 반영된다.
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamA));
+            em.persist(new Member("member4", 40, teamA));
+            em.persist(new Member("user12", 30, teamA));
+            em.persist(new Member("50%off", 40, teamA));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        usernameSearchIndex.rebuild(); //벌크 delete 는 이벤트가 없다.
+    }
+
+    //후보 id 로 거르고 나머지 조건(age)은 DB 에서 거른다.
+    @Test
+    public void candidateIdsReplaceLike() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("1");
+        condition.setAgeGoe(15);
+
+        readOnly.executeWithoutResult(status -> {
+            assertThat(usernameSearchIndex.candidateIds(null, "1")).hasValueSatisfying(ids -> assertThat(ids).hasSize(2));
+            try (StatementScope scope = statementCounter.open()) {
+                assertThat(memberQueryTemplates.findDtos(condition, null, null)).extracting("username").containsExactly("user12");
+                assertThat(executedSql(scope)).hasSize(1).allMatch(sql -> sql.contains(" in (") && !sql.contains(" like "));
+            }
+        });
+    }
+
+    //후보가 없으면 쿼리 없이 빈 결과
+    @Test
+    public void noCandidatesSkipsQuery() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("nobody");
+
+        readOnly.executeWithoutResult(status -> {
+            try (StatementScope scope = statementCounter.open()) {
+                assertThat(memberQueryTemplates.findDtos(condition, null, null)).isEmpty();
+                assertThat(memberQueryTemplates.count(condition)).isZero();
+                assertThat(scope.getTotal()).isZero();
+            }
+        });
+    }
+
+    //후보가 max-candidates 보다 많으면 like 로 거른다.
+    @Test
+    public void tooManyCandidatesFallBackToLike() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("mem");
+
+        readOnly.executeWithoutResult(status -> {
+            assertThat(usernameSearchIndex.candidateIds("mem", null)).isEmpty();
+            try (StatementScope scope = statementCounter.open()) {
+                assertThat(memberQueryTemplates.findDtos(condition, null, null)).extracting("username")
+                        .containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+                assertThat(executedSql(scope)).hasSize(1).allMatch(sql -> sql.contains(" like "));
+            }
+        });
+    }
+
+    //쓰기 트랜잭션 안에서는 커밋되지 않은 자기 변경이 인덱스에 없으므로 like 로 거른다.
+    @Test
+    public void writeTransactionUsesLike() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("user");
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("user99", 50));
+            assertThat(usernameSearchIndex.candidateIds("user", null)).isEmpty();
+            List<MemberTeamDto> result = memberQueryTemplates.findDtos(condition, null, null);
+            assertThat(result).extracting("username").containsExactlyInAnyOrder("user12", "user99");
+        });
+    }
+
+    //JPQL 주석(use_sql_comments)을 뗀 SQL
+    private static List<String> executedSql(StatementScope scope) {
+        List<String> sqls = new ArrayList<>();
+        for (String sql : scope.repeatedStatements(1).keySet()) {
+            String lower = sql.toLowerCase();
+            sqls.add(lower.startsWith("/*") ? lower.substring(lower.indexOf("*/") + 2) : lower);
+        }
+        return sqls;
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!usernameSearchIndex.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(usernameSearchIndex.isReady()).isTrue();
+    }
+}
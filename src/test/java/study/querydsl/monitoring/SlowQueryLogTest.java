@@ -0,0 +1,174 @@
+package study.querydsl.monitoring;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.p6spy.engine.common.StatementInformation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//SlowQueryLog 로거에 ListAppender 를 붙여서 로그 쓰레드가 실제로 남긴 로그로 확인한다.
+//버퍼는 순서대로 비워지므로, 마지막에 넣은 느린 쿼리가 로그에 나왔으면 그 앞에 넣은 것도 모두 처리된 것이다.
+class SlowQueryLogTest {
+    static final long THRESHOLD_NANOS = Duration.ofMillis(200).toNanos();
+
+    Logger logger = (Logger) LoggerFactory.getLogger(SlowQueryLog.class);
+    ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    Level previousLevel;
+    List<SlowQueryLog> started = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        previousLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false); //샘플링 테스트의 로그 수천 줄을 콘솔에 남기지 않는다.
+        logger.addAppender(appender);
+        appender.start();
+    }
+
+    @AfterEach
+    public void after() {
+        started.forEach(SlowQueryLog::stop);
+        logger.detachAppender(appender);
+        logger.setAdditive(true);
+        logger.setLevel(previousLevel);
+    }
+
+    @Test
+    public void onlySlowQueriesAreLoggedWithoutSampling() {
+        SlowQueryLog slowQueryLog = start(new SlowQueryLog(true, Duration.ofMillis(200), 0, 16));
+
+        slowQueryLog.onAfterAnyExecute(statement("select fast"), THRESHOLD_NANOS - 1, null);
+        slowQueryLog.onAfterAnyExecute(statement("select slow"), THRESHOLD_NANOS, null);
+
+        List<ILoggingEvent> events = awaitLogged(event -> sql(event).equals("select slow"));
+        assertThat(events).extracting(SlowQueryLogTest::sql).containsExactly("select slow");
+        assertThat(events.get(0).getLevel()).isEqualTo(Level.WARN);
+    }
+
+    @Test
+    public void fastQueriesAreSampled() {
+        StatementInformation fast = statement("select fast");
+        StatementInformation slow = statement("select slow");
+
+        SlowQueryLog all = start(new SlowQueryLog(true, Duration.ofMillis(200), 1, 16));
+        all.onAfterAnyExecute(fast, 0, null);
+        List<ILoggingEvent> events = awaitLogged(event -> sql(event).equals("select fast"));
+        assertThat(events.get(0).getLevel()).isEqualTo(Level.INFO);
+        all.stop();
+
+        synchronized (appender) {
+            appender.list.clear();
+        }
+        SlowQueryLog half = start(new SlowQueryLog(true, Duration.ofMillis(200), 0.5, 10_001));
+        for (int i = 0; i < 10_000; i++) {
+            half.onAfterAnyExecute(fast, 0, null);
+        }
+        half.onAfterAnyExecute(slow, THRESHOLD_NANOS, null);
+
+        List<ILoggingEvent> sampled = awaitLogged(event -> sql(event).equals("select slow"));
+        assertThat(sampled.size() - 1).isBetween(4_000, 6_000);
+        assertThat(half.getDroppedCount()).isZero();
+    }
+
+    //꺼져 있으면 버퍼에도 넣지 않는다. (크기 1인 버퍼에 넣었다면 두 번째에서 하나를 버렸을 것이다.)
+    @Test
+    public void disabledLogsNothing() {
+        SlowQueryLog slowQueryLog = start(new SlowQueryLog(false, Duration.ofMillis(200), 1, 1));
+
+        slowQueryLog.onAfterAnyExecute(statement("select slow"), THRESHOLD_NANOS, null);
+        slowQueryLog.onAfterAnyExecute(statement("select slow"), THRESHOLD_NANOS, null);
+
+        assertThat(slowQueryLog.getDroppedCount()).isZero();
+        assertThat(logged()).isEmpty();
+    }
+
+    //로그 쓰레드가 밀려서 버퍼가 꽉 차도 쿼리 쓰레드는 기다리지 않고 가장 오래된 것을 버린다.
+    //(로그 쓰레드를 늦게 시작해서 밀린 상황을 만든다.)
+    @Test
+    public void fullBufferDropsOldestWithoutBlocking() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(true, Duration.ofMillis(200), 0, 2);
+        StatementInformation first = statement("select 1");
+        StatementInformation second = statement("select 2");
+        StatementInformation third = statement("select 3");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            slowQueryLog.onAfterAnyExecute(first, THRESHOLD_NANOS, null);
+            slowQueryLog.onAfterAnyExecute(second, THRESHOLD_NANOS, null);
+            slowQueryLog.onAfterAnyExecute(third, THRESHOLD_NANOS, null);
+        });
+        assertThat(slowQueryLog.getDroppedCount()).isEqualTo(1);
+
+        start(slowQueryLog);
+        List<ILoggingEvent> events = awaitLogged(event -> sql(event).equals("select 3"));
+        assertThat(events).extracting(SlowQueryLogTest::sql).containsExactly("select 2", "select 3");
+    }
+
+    //use_sql_comments 로 붙은 JPQL 주석은 SQL 과 나눠서 남긴다.
+    @Test
+    public void jpqlCommentIsSplitFromSql() {
+        SlowQueryLog slowQueryLog = start(new SlowQueryLog(true, Duration.ofMillis(200), 0, 16));
+
+        slowQueryLog.onAfterAnyExecute(statement("/* select m from Member m */ select * from member"), THRESHOLD_NANOS, null);
+
+        ILoggingEvent event = awaitLogged(e -> true).get(0);
+        assertThat(event.getArgumentArray()[1]).isEqualTo("select m from Member m");
+        assertThat(sql(event)).isEqualTo("select * from member");
+    }
+
+    private SlowQueryLog start(SlowQueryLog slowQueryLog) {
+        slowQueryLog.start();
+        started.add(slowQueryLog);
+        return slowQueryLog;
+    }
+
+    //조건에 맞는 로그가 나올 때까지 기다렸다가 그때까지 남은 로그를 돌려준다.
+    private List<ILoggingEvent> awaitLogged(Predicate<ILoggingEvent> last) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            List<ILoggingEvent> events = logged();
+            if (events.stream().anyMatch(last)) {
+                return events;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new AssertionError("로그가 남지 않았습니다: " + logged());
+    }
+
+    //ListAppender 는 로그 쓰레드가 appender 를 잠그고 추가한다.
+    private List<ILoggingEvent> logged() {
+        synchronized (appender) {
+            return new ArrayList<>(appender.list);
+        }
+    }
+
+    //로그 인자: 시간, JPQL, SQL, 값이 채워진 SQL
+    private static String sql(ILoggingEvent event) {
+        return (String) event.getArgumentArray()[2];
+    }
+
+    private static StatementInformation statement(String sql) {
+        StatementInformation statement = mock(StatementInformation.class);
+        when(statement.getSql()).thenReturn(sql);
+        when(statement.getSqlWithValues()).thenReturn(sql);
+        return statement;
+    }
+}
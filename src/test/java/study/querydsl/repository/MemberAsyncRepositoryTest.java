@@ -0,0 +1,102 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.Dto.MemberTeamDto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//MemberRepository 는 mock 으로 두고 조회가 끝나지 않게 막아서 쓰레드풀/bulkhead 가 찬 상태를 만든다.
+class MemberAsyncRepositoryTest {
+    MemberRepository memberRepository = mock(MemberRepository.class);
+    CountDownLatch release = new CountDownLatch(1);
+    MemberAsyncRepository asyncRepository;
+
+    @AfterEach
+    public void after() {
+        release.countDown();
+        if (asyncRepository != null) {
+            asyncRepository.destroy();
+        }
+    }
+
+    @Test
+    public void completesNormally() throws Exception {
+        List<MemberTeamDto> members = Collections.singletonList(new MemberTeamDto(1L, "member1", 10, null, null));
+        when(memberRepository.search(any())).thenReturn(members);
+        asyncRepository = new MemberAsyncRepository(memberRepository, 2, 10, 1);
+
+        assertThat(asyncRepository.search(new MemberSearchCondition()).get(5, TimeUnit.SECONDS)).isEqualTo(members);
+    }
+
+    //search 가 bulkhead 를 다 써도 다른 메소드는 남은 쓰레드에서 실행된다.
+    @Test
+    public void bulkheadRejectsOnlyThatMethod() throws Exception {
+        when(memberRepository.search(any())).thenAnswer(invocation -> blockUntilReleased(Collections.emptyList()));
+        when(memberRepository.searchPageSimple(any(), any())).thenReturn(new PageImpl<>(Collections.emptyList()));
+        asyncRepository = new MemberAsyncRepository(memberRepository, 4, 10, 2);
+
+        CompletableFuture<List<MemberTeamDto>> first = asyncRepository.search(new MemberSearchCondition());
+        CompletableFuture<List<MemberTeamDto>> second = asyncRepository.search(new MemberSearchCondition());
+        CompletableFuture<List<MemberTeamDto>> rejected = asyncRepository.search(new MemberSearchCondition());
+
+        assertRejected(rejected);
+        assertThat(asyncRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 10))
+                .get(5, TimeUnit.SECONDS)).isEmpty();
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEmpty();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEmpty();
+    }
+
+    //쓰레드가 모두 일하고 대기열도 꽉 차면 기다리지 않고 실패한다.
+    @Test
+    public void fullQueueRejects() {
+        when(memberRepository.search(any())).thenAnswer(invocation -> blockUntilReleased(Collections.emptyList()));
+        when(memberRepository.searchPageSimple(any(), any())).thenAnswer(invocation -> blockUntilReleased(Page.empty()));
+        when(memberRepository.searchPageComplex(any(), any())).thenAnswer(invocation -> blockUntilReleased(Page.empty()));
+        asyncRepository = new MemberAsyncRepository(memberRepository, 2, 1, 1);
+
+        asyncRepository.search(new MemberSearchCondition());
+        asyncRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 10));
+        asyncRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 10)); //대기열
+
+        assertRejected(asyncRepository.usePageableExecutionUtils(new MemberSearchCondition(), PageRequest.of(0, 10)));
+    }
+
+    @Test
+    public void bulkheadMustBeSmallerThanThreads() {
+        assertThatThrownBy(() -> new MemberAsyncRepository(memberRepository, 8, 200, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MemberAsyncRepository(memberRepository, 8, 200, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private <T> T blockUntilReleased(T result) throws InterruptedException {
+        release.await(5, TimeUnit.SECONDS);
+        return result;
+    }
+
+    private static void assertRejected(CompletableFuture<?> future) {
+        assertThat(future).isCompletedExceptionally();
+        assertThatThrownBy(future::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
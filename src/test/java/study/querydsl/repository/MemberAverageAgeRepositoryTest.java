@@ -0,0 +1,42 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//집계를 한 번만 하는 방식이 select 절 서브쿼리와 같은 결과를 내는지 확인한다.
+@SpringBootTest
+@Transactional
+class MemberAverageAgeRepositoryTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberAverageAgeRepository memberAverageAgeRepository;
+
+    @Test
+    public void sameAsSubquery() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50)); //팀 없음
+
+        assertThat(memberAverageAgeRepository.findWithAverageAge())
+                .isEqualTo(memberAverageAgeRepository.findWithAverageAgeBySubquery())
+                .extracting("averageAge").containsOnly(30.0);
+        assertThat(memberAverageAgeRepository.findWithTeamAverageAge())
+                .isEqualTo(memberAverageAgeRepository.findWithTeamAverageAgeBySubquery())
+                .extracting("averageAge").containsExactly(15.0, 15.0, 35.0, 35.0, null);
+    }
+}
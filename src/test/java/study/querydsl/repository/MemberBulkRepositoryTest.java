@@ -0,0 +1,126 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.MemberBulkResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberBulkChangedEvent;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static study.querydsl.entity.QMember.member;
+
+//청크마다 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행하고 끝나면 직접 지운다.
+@SpringBootTest
+@RecordApplicationEvents
+class MemberBulkRepositoryTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ApplicationEvents events;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 1; i <= 10; i++) {
+                em.persist(new Member("member" + i, i * 10, teamA));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void addAgeInChunks() {
+        List<MemberBulkResult> progress = new ArrayList<>();
+        MemberBulkResult result = memberBulkRepository.addAge(1, 3, progress::add);
+
+        assertThat(result.getAffectedRows()).isEqualTo(10);
+        assertThat(result.getTotalChunks()).isEqualTo(4); //id 10개를 3개씩
+        assertThat(result.isDone()).isTrue();
+        assertThat(progress).extracting("completedChunks").containsExactly(1, 2, 3, 4);
+        assertThat(memberJpaRepository.findAll()).extracting("age")
+                .containsExactlyInAnyOrder(11, 21, 31, 41, 51, 61, 71, 81, 91, 101);
+    }
+
+    @Test
+    public void deleteInChunks() {
+        MemberBulkResult result = memberBulkRepository.deleteByAgeGt(50, 4, MemberBulkProgressListener.NONE);
+
+        assertThat(result.getAffectedRows()).isEqualTo(5);
+        assertThat(memberJpaRepository.findAll()).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2", "member3", "member4", "member5");
+    }
+
+    //id 범위 중간이 비어 있어도 빈 청크를 건너뛰지 않고 진행하고, 결과는 있는 row 만 센다.
+    @Test
+    public void sparseIdRange() {
+        List<Long> ids = tx.execute(status -> em.createQuery("select m.id from Member m order by m.id", Long.class)
+                .getResultList());
+        List<Long> removed = ids.subList(2, 8);
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.id in :ids")
+                .setParameter("ids", removed)
+                .executeUpdate());
+        long span = ids.get(9) - ids.get(0) + 1;
+
+        List<MemberBulkResult> progress = new ArrayList<>();
+        MemberBulkResult result = memberBulkRepository.addAge(1, 2, progress::add);
+
+        assertThat(result.getAffectedRows()).isEqualTo(4);
+        assertThat(result.getTotalChunks()).isEqualTo((int) ((span - 1) / 2 + 1)).isGreaterThan(2); //row 4개는 청크 2개면 되지만 빈 청크도 돈다.
+        assertThat(progress).hasSize(result.getTotalChunks());
+        assertThat(progress).extracting("affectedRows").isSorted().endsWith(4L);
+        assertThat(memberJpaRepository.findAll()).extracting("age")
+                .containsExactlyInAnyOrder(11, 21, 91, 101);
+    }
+
+    //MemberBulkChangedEvent 는 청크마다가 아니라 작업이 끝날 때 한 번, 바뀐 row 가 있을 때만 발행한다.
+    @Test
+    public void publishesOneEventPerOperation() {
+        memberBulkRepository.addAge(1, 3, MemberBulkProgressListener.NONE);
+        memberBulkRepository.update("noop", member.age.gt(1000), clause -> clause.set(member.age, 0), 3,
+                MemberBulkProgressListener.NONE);
+
+        assertThat(events.stream(MemberBulkChangedEvent.class))
+                .extracting("operation", "affectedRows")
+                .containsExactly(tuple("addAge", 10L));
+    }
+
+    //청크마다 커밋해야 하므로 이미 시작된 트랜잭션 안에서는 실행하지 않는다.
+    @Test
+    public void rejectInsideTransaction() {
+        assertThatThrownBy(() -> tx.executeWithoutResult(status ->
+                memberBulkRepository.addAge(1, 3, MemberBulkProgressListener.NONE)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
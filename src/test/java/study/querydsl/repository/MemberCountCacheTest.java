@@ -0,0 +1,80 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.Dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//스프링 컨텍스트 없이 캐시 동작만 확인한다. (트랜잭션 밖이므로 항상 캐시 대상)
+class MemberCountCacheTest {
+
+    @Test
+    public void hitAndInvalidate() {
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 10);
+        AtomicInteger queries = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        assertThat(cache.get(condition, () -> queries.incrementAndGet() * 10L)).isEqualTo(10);
+        assertThat(cache.get(condition, () -> queries.incrementAndGet() * 10L)).isEqualTo(10);
+        assertThat(queries.get()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+
+        cache.invalidateAll();
+        assertThat(cache.get(condition, () -> queries.incrementAndGet() * 10L)).isEqualTo(20);
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void emptyStringIsSameAsNull() {
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 10);
+        MemberSearchCondition nullName = new MemberSearchCondition();
+        MemberSearchCondition emptyName = new MemberSearchCondition();
+        emptyName.setUsername("");
+
+        cache.get(nullName, () -> 4L);
+        assertThat(cache.get(emptyName, () -> 0L)).isEqualTo(4);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 2);
+        for (int age = 0; age < 3; age++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setAgeGoe(age);
+            cache.get(condition, () -> 1L);
+        }
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void expiresAfterTtl() {
+        MemberCountCache cache = new MemberCountCache(Duration.ZERO, 10);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        cache.get(condition, () -> 1L);
+        assertThat(cache.get(condition, () -> 2L)).isEqualTo(2);
+        assertThat(cache.getHitCount()).isZero();
+    }
+
+    //쓰기 트랜잭션 안에서는 캐시된 카운트를 쓰지도, 새로 넣지도 않는다.
+    @Test
+    public void readWriteTransactionBypassesCache() {
+        MemberCountCache cache = new MemberCountCache(Duration.ofMinutes(1), 10);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        cache.get(condition, () -> 1L);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThat(cache.get(condition, () -> 2L)).isEqualTo(2);
+            assertThat(cache.getHitCount()).isZero();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertThat(cache.get(condition, () -> 3L)).isEqualTo(1);
+    }
+}
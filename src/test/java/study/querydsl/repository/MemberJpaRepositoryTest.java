@@ -8,8 +8,12 @@ import study.querydsl.Dto.MemberSearchCondition;
 import study.querydsl.Dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.monitoring.StatementCounter;
+import study.querydsl.monitoring.StatementScope;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -20,6 +24,10 @@ class MemberJpaRepositoryTest {
     EntityManager em;
     @Autowired
     MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberQueryTemplates memberQueryTemplates;
+    @Autowired
+    StatementCounter statementCounter;
 
     @Test
     public void basicTest() {
@@ -79,4 +87,151 @@ class MemberJpaRepositoryTest {
                 memberJpaRepository.searchByBuilder(condition);
         assertThat(result).extracting("username").containsExactly("member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchStreamTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        List<MemberTeamDto> result = new ArrayList<>();
+        long count = memberJpaRepository.searchStream(condition, 1, result::add); //fetchSize 1 -> 한 건씩 가져온다.
+
+        assertThat(count).isEqualTo(2);
+        //stream 쿼리에 order by 가 없으므로 순서는 보장되지 않는다.
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    //같은 모양(teamName + ageGoe)의 검색은 값이 달라도 JPQL 템플릿을 하나만 만든다.
+    @Test
+    public void searchTemplateReuse() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(15);
+        assertThat(memberJpaRepository.search(condition)).extracting("username").containsExactly("member2");
+        int templates = memberQueryTemplates.size();
+
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(35);
+        assertThat(memberJpaRepository.search(condition)).extracting("username").containsExactly("member4");
+        assertThat(memberJpaRepository.findMember(condition)).extracting("username").containsExactly("member4");
+        assertThat(memberQueryTemplates.size()).isEqualTo(templates + 1); //findMember 의 엔티티 템플릿만 추가
+    }
+
+    //LAZY 는 팀 수만큼 같은 team 조회 쿼리가 반복되고(N+1), 나머지 fetch plan 은 팀 수와 상관없이 쿼리 수가 고정이다.
+    @Test
+    public void findMemberFetchPlan() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        assertThat(executedStatements(condition, MemberFetchPlan.LAZY).getMaxRepeats()).isEqualTo(2);
+        assertThat(executedStatements(condition, MemberFetchPlan.FETCH_JOIN).getTotal()).isEqualTo(1);
+        assertThat(executedStatements(condition, MemberFetchPlan.ENTITY_GRAPH).getTotal()).isEqualTo(1);
+        assertThat(executedStatements(condition, MemberFetchPlan.BATCH).getTotal()).isEqualTo(2); //member 1번 + team in 쿼리 1번
+    }
+
+    private StatementScope executedStatements(MemberSearchCondition condition, MemberFetchPlan fetchPlan) {
+        em.flush();
+        em.clear();
+        try (StatementScope scope = statementCounter.open()) {
+            List<Member> result = memberJpaRepository.findMember(condition, fetchPlan);
+            assertThat(result).extracting(m -> m.getTeam().getName())
+                    .containsExactlyInAnyOrder("teamA", "teamA", "teamB", "teamB");
+            return scope;
+        }
+    }
+
+    //count 쿼리는 조건에 teamName 이 있어도 team 을 조인하지 않는다. (member.team_id 로 거른다.)
+    @Test
+    public void countWithoutJoin() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(15);
+        try (StatementScope scope = statementCounter.open()) {
+            assertThat(memberQueryTemplates.count(condition)).isEqualTo(1);
+            assertThat(memberQueryTemplates.count(new MemberSearchCondition())).isEqualTo(3);
+            assertThat(scope.repeatedStatements(1).keySet())
+                    .filteredOn(sql -> sql.toLowerCase().contains("count("))
+                    .hasSize(2)
+                    .noneMatch(sql -> sql.toLowerCase().contains(" join "));
+        }
+    }
+
+    //영속성 컨텍스트에 있는 회원은 쿼리 없이, 나머지는 in 쿼리 한 번으로 가져오고 요청한 순서대로 돌려준다.
+    @Test
+    public void findAllByIds() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        Member member3 = new Member("member3", 30);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.flush();
+        em.clear();
+        memberJpaRepository.findById(member2.getId()); //영속성 컨텍스트에 올려 둔다.
+
+        try (StatementScope scope = statementCounter.open()) {
+            List<Member> result = memberJpaRepository.findAllByIds(
+                    Arrays.asList(member3.getId(), member1.getId(), -1L, member2.getId()));
+
+            assertThat(result).extracting("username").containsExactly("member3", "member1", "member2");
+            assertThat(scope.getTotal()).isEqualTo(1);
+        }
+    }
+
+    //인덱스가 준비되지 않았거나 쓰기 트랜잭션 안에서는 like 로 거른다. 검색어의 % 는 글자 그대로 찾는다.
+    @Test
+    public void searchByUsernamePrefixAndContains() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("user12", 30, teamA));
+        em.persist(new Member("50%off", 40, teamA));
+
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("mem");
+        assertThat(memberJpaRepository.search(prefix)).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("1");
+        contains.setAgeGoe(15);
+        assertThat(memberJpaRepository.search(contains)).extracting("username").containsExactly("user12");
+
+        MemberSearchCondition literal = new MemberSearchCondition();
+        literal.setUsernameContains("0%");
+        assertThat(memberJpaRepository.search(literal)).extracting("username").containsExactly("50%off");
+    }
+}
@@ -0,0 +1,193 @@
+package study.querydsl.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.MemberKeysetCursor;
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.index.UsernameSearchIndex;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 실행 계획 회귀 테스트
+ */
+//MemberRepositoryCustom 메소드 x 검색 조건 모양(조건이 하나도 없는 경우 제외)마다 실행된 SQL 을 H2 EXPLAIN 으로 확인해서
+//인덱스를 쓰지 않고 member/team 테이블을 전체 스캔(.tableScan)하는 쿼리가 있으면 실패한다.
+//usernamePrefix, usernameContains 는 두 가지 경로를 모두 확인한다.
+//- 읽기 전용 트랜잭션: UsernameSearchIndex 의 id 목록 (member.id in (...))
+//- 쓰기 트랜잭션: like - contains('%...%')는 인덱스를 쓸 수 없으므로(그래서 n-gram 인덱스가 있다.) prefix 만 확인한다.
+//인덱스는 커밋된 회원으로 유지되므로 테스트 트랜잭션 없이 데이터를 커밋하고, 끝나면 지운 뒤 인덱스를 다시 만든다.
+@SpringBootTest(properties = "member.username-index.enabled=true")
+class MemberQueryPlanTest {
+    private static final int USERNAME_CONTAINS = 32;
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    UsernameSearchIndex usernameSearchIndex;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    SqlCapture sqlCapture;
+
+    TransactionTemplate tx;
+
+    //파라미터가 채워진 SQL 을 모은다. (EXPLAIN 은 파라미터 없이 실행할 수 없다.)
+    @TestConfiguration
+    static class SqlCaptureConfig {
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    static class SqlCapture extends JdbcEventListener {
+        private final ThreadLocal<List<String>> captured = new ThreadLocal<>();
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            List<String> sqls = captured.get();
+            if (sqls != null) {
+                sqls.add(statementInformation.getSqlWithValues());
+            }
+        }
+
+        List<String> capture(Runnable runnable) {
+            List<String> sqls = new ArrayList<>();
+            captured.set(sqls);
+            try {
+                runnable.run();
+            } finally {
+                captured.remove();
+            }
+            return sqls;
+        }
+    }
+
+    @BeforeEach
+    public void before() throws InterruptedException {
+        tx = new TransactionTemplate(transactionManager);
+        awaitIndexReady(); //준비된 뒤의 저장은 커밋될 때 인덱스에 반영된다.
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        usernameSearchIndex.rebuild();
+    }
+
+    //메소드마다 읽기 전용 트랜잭션이 열리므로 prefix/contains 는 인덱스의 id 목록으로 조회된다.
+    @Test
+    public void noTableScan() {
+        List<String> tableScans = new ArrayList<>();
+        int explained = explainShapes(shape -> true, tableScans);
+
+        assertThat(explained).isGreaterThan(0);
+        assertThat(tableScans).isEmpty();
+    }
+
+    //쓰기 트랜잭션 안에서는 인덱스를 쓰지 않고 like 로 거른다.
+    @Test
+    public void noTableScanWithLikeFallback() {
+        List<String> tableScans = new ArrayList<>();
+        int explained = tx.execute(status -> explainShapes(shape -> (shape & USERNAME_CONTAINS) == 0, tableScans));
+
+        assertThat(explained).isGreaterThan(0);
+        assertThat(tableScans).isEmpty();
+    }
+
+    private int explainShapes(IntPredicate shapes, List<String> tableScans) {
+        Map<String, Consumer<MemberSearchCondition>> methods = new LinkedHashMap<>();
+        PageRequest pageRequest = PageRequest.of(1, 10);
+        String token = new MemberKeysetCursor(10, 0L).encode();
+        methods.put("search", c -> memberRepository.search(c));
+        methods.put("searchPageSimple", c -> memberRepository.searchPageSimple(c, pageRequest));
+        methods.put("searchPageComplex", c -> memberRepository.searchPageComplex(c, pageRequest));
+        methods.put("usePageableExecutionUtils", c -> memberRepository.usePageableExecutionUtils(c, pageRequest));
+        methods.put("searchPageConcurrent", c -> memberRepository.searchPageConcurrent(c, pageRequest));
+        methods.put("searchKeysetSimple", c -> memberRepository.searchKeysetSimple(c, null, PageRequest.of(0, 10)));
+        methods.put("searchKeysetSimple(after)", c -> memberRepository.searchKeysetSimple(c, token, PageRequest.of(0, 10)));
+        methods.put("searchKeysetComplex", c -> memberRepository.searchKeysetComplex(c, token, PageRequest.of(0, 10)));
+
+        int explained = 0;
+        for (int shape = 1; shape < 64; shape++) {
+            if (!shapes.test(shape)) {
+                continue;
+            }
+            MemberSearchCondition condition = condition(shape);
+            for (Map.Entry<String, Consumer<MemberSearchCondition>> method : methods.entrySet()) {
+                List<String> sqls = sqlCapture.capture(() -> method.getValue().accept(condition));
+                for (String sql : sqls) {
+                    String plan = explain(sql);
+                    explained++;
+                    if (plan.contains(".tableScan")) {
+                        tableScans.add(method.getKey() + " " + condition + "\n" + plan);
+                    }
+                }
+            }
+        }
+        return explained;
+    }
+
+    //shape 비트 - 1: username, 2: teamName, 4: ageGoe, 8: ageLoe, 16: usernamePrefix, 32: usernameContains
+    private static MemberSearchCondition condition(int shape) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & 1) != 0) condition.setUsername("member10");
+        if ((shape & 2) != 0) condition.setTeamName("teamA");
+        if ((shape & 4) != 0) condition.setAgeGoe(5);
+        if ((shape & 8) != 0) condition.setAgeLoe(50);
+        if ((shape & 16) != 0) condition.setUsernamePrefix("member1");
+        if ((shape & USERNAME_CONTAINS) != 0) condition.setUsernameContains("0");
+        return condition;
+    }
+
+    //앞에 붙은 JPQL 주석(use_sql_comments)의 :파라미터를 네이티브 쿼리 파라미터로 해석하지 않도록 떼어낸다.
+    private String explain(String sql) {
+        String query = sql.startsWith("/*") ? sql.substring(sql.indexOf("*/") + 2) : sql;
+        return String.valueOf(em.createNativeQuery("explain " + query).getSingleResult());
+    }
+
+    private void awaitIndexReady() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!usernameSearchIndex.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(usernameSearchIndex.isReady()).isTrue();
+    }
+}
@@ -0,0 +1,142 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.MemberSearchCondition;
+import study.querydsl.Dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitoring.MemberQueryMetrics;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//searchPageConcurrent 의 count 쿼리는 다른 쓰레드(다른 커넥션)에서 실행되므로
+//테스트 트랜잭션(@Transactional) 없이 데이터를 커밋해 두고 끝나면 직접 지운다.
+@SpringBootTest
+class MemberRepositoryConcurrentPageTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    MemberQueryTemplates queryTemplates;
+    @Autowired
+    MemberCountCache countCache;
+    @Autowired
+    MemberQueryMetrics metrics;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    //content 와 count 를 동시에 실행해도 순차 실행(usePageableExecutionUtils)과 같은 페이지가 나온다.
+    @Test
+    public void sameResultAsSequentialPaging() {
+        MemberSearchCondition all = new MemberSearchCondition();
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+
+        for (MemberSearchCondition condition : new MemberSearchCondition[]{all, teamB}) {
+            for (PageRequest pageable : new PageRequest[]{PageRequest.of(0, 3), PageRequest.of(1, 3), PageRequest.of(0, 10), PageRequest.of(5, 3)}) {
+                Page<MemberTeamDto> concurrent = memberRepository.searchPageConcurrent(condition, pageable);
+                Page<MemberTeamDto> sequential = memberRepository.usePageableExecutionUtils(condition, pageable);
+
+                assertThat(concurrent.getContent()).isEqualTo(sequential.getContent());
+                assertThat(concurrent.getTotalElements()).isEqualTo(sequential.getTotalElements());
+            }
+        }
+    }
+
+    //첫 페이지가 페이지 크기보다 작으면 count 를 기다리지 않고 취소한다. (끝나지 않는 count 로 확인)
+    @Test
+    public void countIsSkippedWhenNotNeeded() {
+        CompletableFuture<Long> neverCompletes = new CompletableFuture<>();
+        MemberRepositoryImpl repository = repositoryWith(() -> neverCompletes);
+
+        Page<MemberTeamDto> page = readOnly.execute(status ->
+                repository.searchPageConcurrent(new MemberSearchCondition(), PageRequest.of(0, 10)));
+
+        assertThat(page.getContent()).hasSize(4);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(neverCompletes).isCancelled();
+    }
+
+    //count 가 필요하면 다른 쓰레드의 결과를 기다려서 쓴다.
+    @Test
+    public void countIsAwaitedWhenNeeded() {
+        CompletableFuture<Long> count = CompletableFuture.completedFuture(4L);
+        MemberRepositoryImpl repository = repositoryWith(() -> count);
+
+        Page<MemberTeamDto> page = readOnly.execute(status ->
+                repository.searchPageConcurrent(new MemberSearchCondition(), PageRequest.of(0, 3)));
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(count).isNotCancelled();
+    }
+
+    //쓰레드풀이 포화되면 이 쓰레드에서 순차 실행한다.
+    @Test
+    public void saturatedPoolFallsBackToSequential() {
+        MemberRepositoryImpl repository = repositoryWith(() -> {
+            throw new RejectedExecutionException("saturated");
+        });
+
+        Page<MemberTeamDto> page = readOnly.execute(status ->
+                repository.searchPageConcurrent(new MemberSearchCondition(), PageRequest.of(0, 3)));
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+    }
+
+    //count 쿼리 대신 countFuture 를 돌려주는 ParallelQueryExecutor 로 만든 MemberRepositoryImpl
+    private MemberRepositoryImpl repositoryWith(Supplier<Future<Long>> countFuture) {
+        ParallelQueryExecutor executor = new ParallelQueryExecutor(transactionManager, 1, 1) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> Future<T> submit(Supplier<T> query) {
+                return (Future<T>) countFuture.get();
+            }
+        };
+        return new MemberRepositoryImpl(queryTemplates, countCache, executor, metrics);
+    }
+}
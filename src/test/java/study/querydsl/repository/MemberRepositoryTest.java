@@ -1,11 +1,16 @@
 package study.querydsl.repository;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.Dto.MemberKeysetPage;
 import study.querydsl.Dto.MemberSearchCondition;
 import study.querydsl.Dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -15,6 +20,7 @@ import javax.persistence.EntityManager;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -23,6 +29,8 @@ class MemberRepositoryTest {
     EntityManager em;
     @Autowired
     MemberRepository memberRepository;
+    @Autowired
+    MeterRegistry meterRegistry;
 
     @Test
     public void basicTest() {
@@ -86,4 +94,66 @@ class MemberRepositoryTest {
         assertThat(result.getSize()).isEqualTo(3);
         assertThat(result.getContent()).extracting("username").containsExactly("member1","member2","member3"); //page 0부터 3개를 뽑았기 때문
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchKeyset() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 20, teamB); //member2 와 나이가 같으면 id 로 순서를 정한다.
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        MemberKeysetPage first = memberRepository.searchKeysetComplex(condition, null, PageRequest.of(0, 2));
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(first.getTotal()).isEqualTo(4);
+        assertThat(first.hasNext()).isTrue();
+
+        MemberKeysetPage second = memberRepository.searchKeysetSimple(condition, first.getNextToken(), PageRequest.of(0, 2, Sort.by("age", "id")));
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    //키셋의 정렬 키는 (age, id) 로 고정이라 다른 정렬은 무시하지 않고 거절한다.
+    @Test
+    public void searchKeysetRejectsOtherSort() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberRepository.searchKeysetSimple(condition, null, PageRequest.of(0, 2, Sort.by("username"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberRepository.searchKeysetComplex(condition, null, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    //메소드 + 검색 조건 모양별로 응답 시간, row 수, SQL 수가 기록된다.
+    @Test
+    public void searchMetrics() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(15);
+
+        String[] tags = {"method", "MemberRepository.search",
+                "username", "false", "teamName", "false", "ageGoe", "true", "ageLoe", "false"};
+        Timer timer = meterRegistry.find("member.query").tags(tags).timer();
+        long before = timer == null ? 0 : timer.count();
+
+        memberRepository.search(condition);
+
+        timer = meterRegistry.get("member.query").tags(tags).timer();
+        assertThat(timer.count()).isEqualTo(before + 1);
+        DistributionSummary rows = meterRegistry.get("member.query.rows").tags(tags).summary();
+        assertThat(rows.max()).isGreaterThanOrEqualTo(1);
+        DistributionSummary statements = meterRegistry.get("member.query.statements").tags(tags).summary();
+        assertThat(statements.max()).isGreaterThanOrEqualTo(1);
+    }
+}
@@ -0,0 +1,75 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//flush 쓰레드가 따로 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행하고 끝나면 직접 지운다.
+@SpringBootTest(properties = {
+        "member.write-behind.enabled=true",
+        "member.write-behind.batch-size=3",
+        "member.write-behind.flush-interval=1s"})
+class MemberWriteBehindRepositoryTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MemberWriteBehindRepository memberWriteBehindRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    //batch-size 건씩 묶어서 커밋하고, 커밋된 뒤에 id 가 채워진 회원으로 future 가 완료된다.
+    @Test
+    public void saveInBatches() {
+        long batches = memberWriteBehindRepository.getBatchCount();
+        List<CompletableFuture<Member>> futures = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            futures.add(memberWriteBehindRepository.save(new Member("member" + i, i * 10)));
+        }
+
+        for (CompletableFuture<Member> future : futures) {
+            assertThat(future.join().getId()).isNotNull();
+        }
+        assertThat(memberWriteBehindRepository.getBatchCount()).isEqualTo(batches + 2);
+        assertThat(count()).isEqualTo(6);
+    }
+
+    //저장할 수 없는 회원(저장되지 않은 팀을 참조)이 섞여 있으면 그 회원의 future 만 실패한다.
+    @Test
+    public void failedSaveDoesNotFailBatch() {
+        CompletableFuture<Member> first = memberWriteBehindRepository.save(new Member("member1", 10));
+        CompletableFuture<Member> broken = memberWriteBehindRepository.save(new Member("member2", 20, new Team("transient")));
+        CompletableFuture<Member> third = memberWriteBehindRepository.save(new Member("member3", 30));
+
+        assertThat(first.join().getId()).isNotNull();
+        assertThat(third.join().getId()).isNotNull();
+        assertThatThrownBy(broken::join).hasCauseInstanceOf(RuntimeException.class);
+        assertThat(count()).isEqualTo(2);
+    }
+
+    private long count() {
+        return new TransactionTemplate(transactionManager).execute(status -> em
+                .createQuery("select count(m) from Member m", Long.class)
+                .getSingleResult());
+    }
+}
@@ -0,0 +1,75 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.Dto.TeamStatisticsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TeamJpaRepositoryTest {
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TeamJpaRepository teamJpaRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void findIdsByName() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Team("teamB"));
+
+        assertThat(teamJpaRepository.findIdsByName("teamA")).containsExactly(teamA.getId());
+        assertThat(teamJpaRepository.findIdsByName("teamC")).isEmpty();
+    }
+
+    //영속성 컨텍스트를 비워도 두 번째 조회부터는 2차 캐시에서 가져온다.
+    //2차 캐시는 커밋될 때 채워지므로 테스트 트랜잭션 밖에서 트랜잭션마다 커밋하고, 끝나면 지운다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void teamIsServedFromSecondLevelCache() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Team teamA = new Team("teamA");
+        transaction.executeWithoutResult(status -> em.persist(teamA));
+        try {
+            transaction.executeWithoutResult(status -> em.find(Team.class, teamA.getId())); //캐시에 없으면 DB 조회 후 저장
+            long hits = teamJpaRepository.teamCacheStatistics().getHitCount();
+
+            Team cached = transaction.execute(status -> em.find(Team.class, teamA.getId()));
+
+            assertThat(cached.getName()).isEqualTo("teamA");
+            assertThat(teamJpaRepository.teamCacheStatistics().getHitCount()).isEqualTo(hits + 1);
+        } finally {
+            transaction.executeWithoutResult(status -> em.remove(em.find(Team.class, teamA.getId())));
+        }
+    }
+
+    //QuerydslBasicTest.group() 과 같은 데이터 - teamA 평균 15, teamB 평균 35
+    @Test
+    public void findAgeStatistics() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        assertThat(teamJpaRepository.findAgeStatistics()).containsExactly(
+                new TeamStatisticsDto(teamA.getId(), "teamA", 2, 30, 10, 20),
+                new TeamStatisticsDto(teamB.getId(), "teamB", 2, 70, 30, 40));
+    }
+}